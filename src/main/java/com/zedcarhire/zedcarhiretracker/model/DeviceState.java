@@ -0,0 +1,48 @@
+package com.zedcarhire.zedcarhiretracker.model;
+
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Latest known health of one device, one row per IMEI.
+ * Kept in memory by DeviceStateStore and written back with periodic upserts.
+ */
+@Entity
+@Table(name = "device_state")
+@Getter @Setter
+public class DeviceState {
+
+    @Id
+    @Column(length = 32)
+    private String imei;
+
+    private Integer acc;
+    private Boolean charging;
+
+    @Column(name = "battery_mv")
+    private Integer batteryMv;
+    @Column(name = "voltage_level")
+    private Integer voltageLevel;
+    @Column(name = "gsm_signal")
+    private Integer gsmSignal;
+    @Column(name = "terminal_info")
+    private Integer terminalInfo;
+    @Column(name = "external_mv")
+    private Integer externalMv;
+
+    private Double latitude;
+    private Double longitude;
+    @Column(name = "speed_kph")
+    private Double speedKph;
+
+    @Column(name = "last_heartbeat")
+    private LocalDateTime lastHeartbeat;
+    @Column(name = "last_fix")
+    private LocalDateTime lastFix;
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
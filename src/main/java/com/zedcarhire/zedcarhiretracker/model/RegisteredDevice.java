@@ -0,0 +1,28 @@
+package com.zedcarhire.zedcarhiretracker.model;
+
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A device we operate, and the tenant whose API keys may see it.
+ * Held in memory by DeviceRegistry; maintained directly in the device_registry table.
+ */
+@Entity
+@Table(name = "device_registry")
+@Getter @Setter
+public class RegisteredDevice {
+
+    @Id
+    @Column(length = 32)
+    private String imei;
+
+    @Column(length = 64, nullable = false)
+    private String tenant;
+
+    @Column(length = 100)
+    private String label;
+
+    private boolean active = true;
+}
@@ -0,0 +1,36 @@
+package com.zedcarhire.zedcarhiretracker.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lean read model of a tracker_data row for the tracking APIs.
+ * Fetched with a JPQL constructor expression, so the raw_hex LOB and id are never loaded;
+ * null acc/battery/mileage are left out of the JSON.
+ * {@code place} is an optional "near X" label added on request (see Gazetteer).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TrackPoint(
+        String imei,
+        double latitude,
+        double longitude,
+        double speedKph,
+        Integer course,
+        Integer acc,
+        Integer batteryMv,
+        Integer mileageM,
+        LocalDateTime gpsTime,
+        String place
+) {
+
+    // Used by the repository's constructor expression - no place label
+    public TrackPoint(String imei, double latitude, double longitude, double speedKph, Integer course,
+                      Integer acc, Integer batteryMv, Integer mileageM, LocalDateTime gpsTime) {
+        this(imei, latitude, longitude, speedKph, course, acc, batteryMv, mileageM, gpsTime, null);
+    }
+
+    public TrackPoint withPlace(String place) {
+        return new TrackPoint(imei, latitude, longitude, speedKph, course, acc, batteryMv, mileageM, gpsTime, place);
+    }
+}
@@ -5,6 +5,7 @@ import java.time.LocalDateTime;
 public class Decoded {
 
     public String protocol;   // e.g. "GT06"
+    public String type;       // LOGIN, HEARTBEAT, STATUS, GPS, INFO
     public String imei;
 
     public Double latitude;
@@ -16,6 +17,20 @@ public class Decoded {
     public Integer batteryMv;
     public Integer mileageM;
 
+    // Device health from heartbeat/status packets
+    public Integer terminalInfo;
+    public Boolean charging;
+    public Integer voltageLevel;  // 0 (no power) .. 6 (full)
+    public Integer gsmSignal;     // 0 (none) .. 4 (strong)
+
+    // 0x94 information transmission
+    public Integer infoType;      // sub-type byte
+    public Integer externalMv;    // sub-type 0x00: external power voltage
+
+    // 0x15 / 0x21 reply to a server command (0x80)
+    public Integer serverFlag;    // echoes the flag the command was sent with
+    public String commandReply;
+
     public LocalDateTime gpsTime;
     public String rawHex;
 
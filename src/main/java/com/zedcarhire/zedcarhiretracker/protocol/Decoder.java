@@ -1,8 +1,10 @@
 package com.zedcarhire.zedcarhiretracker.protocol;
 
-import java.net.Socket;
-
 public interface Decoder {
     String id();
-    Decoded decode(byte[] pkt, Socket socket);
+
+    /**
+     * @param session state of the connection the frame came in on, or null if there is none
+     */
+    Decoded decode(byte[] pkt, DecoderSession session);
 }
@@ -1,6 +1,5 @@
 package com.zedcarhire.zedcarhiretracker.protocol;
 
-import java.net.Socket;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,9 +17,9 @@ public class DecoderRegistry {
     /**
      * Tries each decoder until one returns a non-null result
      */
-    public Decoded decode(byte[] pkt, Socket socket) {
+    public Decoded decode(byte[] pkt, DecoderSession session) {
         for (Decoder decoder : decoders) {
-            Decoded result = decoder.decode(pkt, socket);
+            Decoded result = decoder.decode(pkt, session);
             if (result != null) {
                 result.protocol = decoder.id();
                 return result;
@@ -0,0 +1,61 @@
+package com.zedcarhire.zedcarhiretracker.protocol;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * What a decoder may remember about one connection between frames: the IMEI it logged in
+ * with and where its vendor 0x94 frames carry the position. Owned by the connection's
+ * reader thread, so nothing here is synchronized.
+ */
+public class DecoderSession {
+
+    // Consecutive frames that must agree before an offset is trusted
+    static final int LEARN_HITS = 2;
+
+    private String imei;
+
+    // 0x94 sub-type -> {offset, consecutive frames it was found at}
+    private final Map<Integer, int[]> gpsOffsets = new HashMap<>(4);
+
+    public DecoderSession() {
+    }
+
+    public DecoderSession(String imei) {
+        this.imei = imei;
+    }
+
+    /**
+     * IMEI the connection logged in with, or null before login
+     */
+    public String getImei() {
+        return imei;
+    }
+
+    public void setImei(String imei) {
+        if (!Objects.equals(this.imei, imei)) gpsOffsets.clear();
+        this.imei = imei;
+    }
+
+    /**
+     * @return the offset once LEARN_HITS consecutive frames found the position there, else -1
+     */
+    int learnedGpsOffset(int subType) {
+        int[] c = gpsOffsets.get(subType);
+        return c != null && c[1] >= LEARN_HITS ? c[0] : -1;
+    }
+
+    void gpsFoundAt(int subType, int offset) {
+        int[] c = gpsOffsets.get(subType);
+        if (c != null && c[0] == offset) {
+            if (c[1] < LEARN_HITS) c[1]++;
+        } else {
+            gpsOffsets.put(subType, new int[]{offset, 1});
+        }
+    }
+
+    void forgetGpsOffset(int subType) {
+        gpsOffsets.remove(subType);
+    }
+}
@@ -1,13 +1,12 @@
 package com.zedcarhire.zedcarhiretracker.protocol;
 
-import java.net.Socket;
 import java.time.LocalDateTime;
 
 public class FallbackDecoder implements Decoder {
     @Override public String id(){ return "FALLBACK"; }
 
     @Override
-    public Decoded decode(byte[] pkt, Socket socket) {
+    public Decoded decode(byte[] pkt, DecoderSession session) {
         Decoded d = new Decoded();
         d.rawHex = toHex(pkt);
         // Heuristic: look for 15+ digit BCD-ish sequence (IMEI)
@@ -1,7 +1,6 @@
 package com.zedcarhire.zedcarhiretracker.protocol;
 
-import java.net.Socket;
-import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 
 public class Gt06Decoder implements Decoder {
@@ -11,9 +10,34 @@ public class Gt06Decoder implements Decoder {
         return "GT06";
     }
 
+    // 0x94 information transmission sub-types
+    private static final int INFO_EXTERNAL_VOLTAGE = 0x00;  // 2 bytes, 0.01 V
+    private static final int INFO_STATUS_SYNC = 0x04;       // ASCII "ALM1=..;STA1=..;"
+    private static final int INFO_DOOR_STATUS = 0x05;       // 1 byte
+    private static final int INFO_SIM_IDENTITY = 0x0A;      // IMEI, IMSI, ICCID - 8 bytes BCD each
+
+    // 79 79 [LEN 2] 94 [SUB-TYPE] [CONTENT ...] [SERIAL 2] [CRC 2] 0D 0A
+    private static final int INFO_CONTENT = 6;
+    private static final int INFO_TRAILER = 6;
+
+    // Vendor sub-types that carry a position: [LAT 4] [LNG 4] [SPEED] [COURSE/STATUS 2]
+    private static final int INFO_GPS_LENGTH = 11;
+
+    // Vendor position blocks follow the 0x12 layout: [DATE 6] [GPS LEN/SATS] before the latitude
+    private static final int INFO_GPS_DATE_BEFORE = 7;
+
+    // Server command (0x80) and the device's replies: 0x15 short frame, 0x21 long frame
+    public static final int PROTO_COMMAND = 0x80;
+    private static final int PROTO_REPLY = 0x15;
+    private static final int PROTO_REPLY_LONG = 0x21;
+
     private static int intAt(byte[] b, int off) {
         if (off + 3 >= b.length) return 0;
-        return ByteBuffer.wrap(new byte[]{b[off], b[off + 1], b[off + 2], b[off + 3]}).getInt();
+        return ((b[off] & 0xFF) << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+    }
+
+    private static int u16(byte[] b, int off) {
+        return ((b[off] & 0xFF) << 8) | (b[off + 1] & 0xFF);
     }
 
     private static String decodeImeiFromLogin(byte[] pkt) {
@@ -60,7 +84,7 @@ public class Gt06Decoder implements Decoder {
     }
 
     @Override
-    public Decoded decode(byte[] pkt, Socket socket) {
+    public Decoded decode(byte[] pkt, DecoderSession session) {
         if (pkt.length < 5) return null;
 
         // Check if this is a long packet (79 79) or short packet (78 78)
@@ -78,93 +102,62 @@ public class Gt06Decoder implements Decoder {
         try {
             // LOGIN (0x01)
             if (proto == 0x01) {
+                out.type = "LOGIN";
                 out.imei = decodeImeiFromLogin(pkt);
                 System.out.println("[DECODER] Login packet detected");
                 return out;
             }
 
             // HEARTBEAT (0x13)
+            // 78 78 0A 13 [TERMINAL INFO] [VOLTAGE LEVEL] [GSM SIGNAL] [ALARM/LANG 2] [SERIAL] [CRC] 0D 0A
             if (proto == 0x13) {
+                out.type = "HEARTBEAT";
+                if (!isLongPacket && pkt.length >= 15) {
+                    applyTerminalInfo(out, pkt[4] & 0xFF);
+                    out.voltageLevel = pkt[5] & 0xFF;
+                    out.gsmSignal = pkt[6] & 0xFF;
+                }
                 System.out.println("[DECODER] Heartbeat packet detected");
                 return out;
             }
 
             // STATUS (0x23)
+            // 78 78 [LEN] 23 [TERMINAL INFO] [VOLTAGE 2, 0.01V] [GSM SIGNAL] [ALARM/LANG 2] [SERIAL] [CRC] 0D 0A
             if (proto == 0x23) {
+                out.type = "STATUS";
+                if (!isLongPacket && pkt.length >= 16) {
+                    applyTerminalInfo(out, pkt[4] & 0xFF);
+                    out.batteryMv = (((pkt[5] & 0xFF) << 8) | (pkt[6] & 0xFF)) * 10;
+                    out.gsmSignal = pkt[7] & 0xFF;
+                }
                 System.out.println("[DECODER] Status packet detected");
                 return out;
             }
 
+            // COMMAND REPLY (0x15, 0x21)
+            // 78 78 [LEN] 15 [CMD LEN] [SERVER FLAG 4] [CONTENT ...] [SERIAL] [CRC] 0D 0A
+            // 79 79 [LEN 2] 21 [SERVER FLAG 4] [ENCODING] [CONTENT ...] [SERIAL] [CRC] 0D 0A
+            if ((proto == PROTO_REPLY && !isLongPacket) || (proto == PROTO_REPLY_LONG && isLongPacket)) {
+                int start = isLongPacket ? 10 : 9;
+                int end = isLongPacket ? pkt.length - 6 : Math.min(5 + (pkt[4] & 0xFF), pkt.length - 6);
+                if (end < start) return null;
+                out.type = "COMMAND_REPLY";
+                out.serverFlag = intAt(pkt, 5);
+                out.commandReply = new String(pkt, start, end - start, StandardCharsets.US_ASCII).trim();
+                System.out.println("[DECODER] Command reply for flag " + out.serverFlag + ": " + out.commandReply);
+                return out;
+            }
+
             // GPS packets (0x12, 0x22, 0x94)
             if (proto == 0x12 || proto == 0x22 || proto == 0x94) {
+                out.type = "GPS";
                 System.out.println("[DECODER] GPS packet detected (proto=" + String.format("0x%02X", proto) + ")");
                 System.out.println("[DECODER] Packet length: " + pkt.length);
-                System.out.println("[DECODER] Full HEX: " + toHex(pkt));
+                System.out.println("[DECODER] Full HEX: " + out.rawHex);
 
                 // For protocol 0x94 (long packet with extended info)
                 if (proto == 0x94 && isLongPacket) {
-                    System.out.println("[DECODER] Analyzing 0x94 packet structure (SMS-based tracker)...");
-                    System.out.println("[DECODER] Searching for GPS coordinates in packet...");
-
-                    // Try all possible 4-byte positions for latitude
-                    for (int latOffset = 14; latOffset <= pkt.length - 10; latOffset++) {
-                        int latRaw = intAt(pkt, latOffset);
-                        int lngRaw = intAt(pkt, latOffset + 4);
-
-                        // Convert assuming standard GT06 format
-                        double lat = Math.abs(latRaw / 1800000.0);  // Get absolute value first
-                        double lng = Math.abs(lngRaw / 1800000.0);
-
-                        // Check if coordinates are reasonable for Zambia
-                        // Zambia: Latitude 8°-18° South, Longitude 22°-34° East
-                        boolean latValid = (lat >= 8 && lat <= 18);
-                        boolean lngValid = (lng >= 22 && lng <= 34);
-
-                        if (latValid && lngValid) {
-                            System.out.println("[DECODER] ✓ Possible GPS found at offset " + latOffset);
-                            System.out.println("[DECODER]   Raw Lat: " + latRaw + " (0x" + Integer.toHexString(latRaw) + ")");
-                            System.out.println("[DECODER]   Raw Lng: " + lngRaw + " (0x" + Integer.toHexString(lngRaw) + ")");
-                            System.out.println("[DECODER]   Decoded: " + lat + "°, " + lng + "°");
-
-                            // Check if speed and course bytes make sense
-                            int speedOffset = latOffset + 8;
-                            int courseOffset = latOffset + 9;
-
-                            if (courseOffset + 1 < pkt.length) {
-                                int speedRaw = pkt[speedOffset] & 0xFF;
-                                int courseStatus = ((pkt[courseOffset] & 0xFF) << 8) | (pkt[courseOffset + 1] & 0xFF);
-                                int course = courseStatus & 0x03FF;
-                                boolean gpsFixed = (courseStatus & 0x1000) != 0;
-
-                                System.out.println("[DECODER]   Speed: " + speedRaw + " km/h");
-                                System.out.println("[DECODER]   Course: " + course + "°");
-                                System.out.println("[DECODER]   GPS Fixed: " + gpsFixed);
-
-                                // ALWAYS force Southern hemisphere for Zambia operations
-                                lat = -Math.abs(lat);
-                                lng = Math.abs(lng);  // Eastern hemisphere
-
-                                System.out.println("[DECODER]   Final (Zambia): " + lat + "°S, " + lng + "°E");
-
-                                // If this looks reasonable, use it
-                                if (speedRaw <= 200 && course <= 360) {
-                                    out.gpsTime = LocalDateTime.now();
-                                    out.latitude = lat;
-                                    out.longitude = lng;
-                                    out.speedKph = (double) speedRaw;
-                                    out.course = course;
-
-                                    System.out.println("[DECODER] ✅ GPS data decoded successfully!");
-                                    System.out.println("[DECODER] Location: " + out.latitude + ", " + out.longitude);
-
-                                    return out;
-                                }
-                            }
-                        }
-                    }
-
-                    System.out.println("[DECODER] ERROR: Could not find valid GPS coordinates in packet");
-                    return null;
+                    return decodeInfo(pkt, out, session);
                 }
 
                 // Standard short packets (0x12, 0x22)
@@ -208,6 +201,11 @@ public class Gt06Decoder implements Decoder {
 
                     System.out.println("[DECODER] ✓ Applied Zambia hemisphere: " + lat + "°S, " + lng + "°E");
 
+                    // 0x22 carries ACC after the LBS block
+                    if (proto == 0x22 && pkt.length >= 39) {
+                        out.acc = pkt[30] & 0xFF;
+                    }
+
                     if (gpsFixed && Math.abs(lat) <= 90 && Math.abs(lng) <= 180) {
                         out.latitude = lat;
                         out.longitude = lng;
@@ -229,6 +227,109 @@ public class Gt06Decoder implements Decoder {
         }
         return null;
     }
+    /**
+     * 0x94 information transmission. The standard sub-types are parsed by layout; vendor
+     * sub-types that embed a position use the offset learned on this connection, falling
+     * back to a scan for a plausible Zambian fix. A scan result is only learned once two
+     * consecutive frames put the position at the same offset, so one frame whose other
+     * bytes happen to pass the check does not stick.
+     */
+    private static Decoded decodeInfo(byte[] pkt, Decoded out, DecoderSession session) {
+        int contentEnd = pkt.length - INFO_TRAILER;
+        if (contentEnd <= INFO_CONTENT) return null;
+
+        int subType = pkt[5] & 0xFF;
+        out.infoType = subType;
+
+        switch (subType) {
+            case INFO_EXTERNAL_VOLTAGE:
+                out.type = "INFO";
+                if (contentEnd - INFO_CONTENT >= 2) out.externalMv = u16(pkt, INFO_CONTENT) * 10;
+                return out;
+            case INFO_STATUS_SYNC:
+            case INFO_DOOR_STATUS:
+            case INFO_SIM_IDENTITY:
+                out.type = "INFO";
+                return out;
+            default:
+                break;
+        }
+
+        int learned = session != null ? session.learnedGpsOffset(subType) : -1;
+        if (learned >= 0) {
+            if (learned + INFO_GPS_LENGTH <= contentEnd && applyInfoGps(pkt, learned, out)) {
+                return out;
+            }
+            session.forgetGpsOffset(subType);
+        }
+
+        for (int off = INFO_CONTENT; off + INFO_GPS_LENGTH <= contentEnd; off++) {
+            if (applyInfoGps(pkt, off, out)) {
+                if (session != null) {
+                    session.gpsFoundAt(subType, off);
+                    if (session.learnedGpsOffset(subType) == off) {
+                        System.out.println("[DECODER] 0x94 sub-type 0x" + String.format("%02X", subType) +
+                                ": GPS at offset " + off + " (learned for this connection)");
+                    }
+                }
+                return out;
+            }
+        }
+
+        System.out.println("[DECODER] 0x94 sub-type 0x" + String.format("%02X", subType) + ": no GPS found");
+        return null;
+    }
+
+    /**
+     * Fills out the fix if the 11 bytes at off look like a Zambian position, otherwise leaves out untouched
+     */
+    private static boolean applyInfoGps(byte[] pkt, int off, Decoded out) {
+        double lat = Math.abs(intAt(pkt, off) / 1800000.0);
+        double lng = Math.abs(intAt(pkt, off + 4) / 1800000.0);
+
+        // Zambia: Latitude 8°-18° South, Longitude 22°-34° East
+        if (lat < 8 || lat > 18 || lng < 22 || lng > 34) return false;
+
+        int speedRaw = pkt[off + 8] & 0xFF;
+        int course = u16(pkt, off + 9) & 0x03FF;
+        if (speedRaw > 200 || course > 360) return false;
+
+        out.type = "GPS";
+        out.gpsTime = infoGpsTime(pkt, off);
+        // ALWAYS force Southern/Eastern hemisphere for Zambia operations
+        out.latitude = -lat;
+        out.longitude = lng;
+        out.speedKph = (double) speedRaw;
+        out.course = course;
+        return true;
+    }
+
+    /**
+     * Time of a vendor position block, from the date in front of it; the receive time if
+     * there is none or it is not a valid date (or more than a day ahead)
+     */
+    private static LocalDateTime infoGpsTime(byte[] pkt, int off) {
+        LocalDateTime now = LocalDateTime.now();
+        int d = off - INFO_GPS_DATE_BEFORE;
+        if (d < INFO_CONTENT) return now;
+        try {
+            LocalDateTime t = LocalDateTime.of(2000 + (pkt[d] & 0xFF), pkt[d + 1] & 0xFF, pkt[d + 2] & 0xFF,
+                    pkt[d + 3] & 0xFF, pkt[d + 4] & 0xFF, pkt[d + 5] & 0xFF);
+            return t.isAfter(now.plusDays(1)) ? now : t;
+        } catch (java.time.DateTimeException e) {
+            return now;
+        }
+    }
+
+    /**
+     * Terminal information byte: bit1 = ACC high, bit2 = charging
+     */
+    private static void applyTerminalInfo(Decoded out, int info) {
+        out.terminalInfo = info;
+        out.acc = (info & 0x02) != 0 ? 1 : 0;
+        out.charging = (info & 0x04) != 0;
+    }
+
     public static String toHex(byte[] pkt) {
         StringBuilder sb = new StringBuilder();
         for (byte b : pkt) sb.append(String.format("%02X", b));
@@ -316,6 +417,54 @@ public class Gt06Decoder implements Decoder {
         return ack;
     }
 
+    /**
+     * Server command frame carrying ASCII text such as "DYD,000000#" (fuel cut) or "WHERE#".
+     * 78 78 [LEN] 80 [CMD LEN] [SERVER FLAG 4] [COMMAND ...] [SERIAL 2] [CRC 2] 0D 0A
+     * The device answers with 0x15/0x21 echoing serverFlag.
+     */
+    public static byte[] buildCommand(int serverFlag, String command, int serial) {
+        byte[] text = command.getBytes(StandardCharsets.US_ASCII);
+        int cmdLen = 4 + text.length;
+        int len = 1 + 1 + cmdLen + 2 + 2;  // proto, cmd len, flag + text, serial, crc
+        if (len > 0xFF) throw new IllegalArgumentException("command too long: " + text.length + " bytes");
+
+        byte[] f = new byte[len + 5];
+        f[0] = 0x78;
+        f[1] = 0x78;
+        f[2] = (byte) len;
+        f[3] = (byte) PROTO_COMMAND;
+        f[4] = (byte) cmdLen;
+        f[5] = (byte) (serverFlag >>> 24);
+        f[6] = (byte) (serverFlag >>> 16);
+        f[7] = (byte) (serverFlag >>> 8);
+        f[8] = (byte) serverFlag;
+        System.arraycopy(text, 0, f, 9, text.length);
+        int i = 9 + text.length;
+        f[i] = (byte) (serial >>> 8);
+        f[i + 1] = (byte) serial;
+        // Terminals check commands against CRC-ITU over length..serial
+        int crc = crcItu(f, 2, i + 2);
+        f[i + 2] = (byte) (crc >>> 8);
+        f[i + 3] = (byte) crc;
+        f[i + 4] = 0x0D;
+        f[i + 5] = 0x0A;
+        return f;
+    }
+
+    /**
+     * CRC-16/X-25 (CRC-ITU), as specified for GT06 frames
+     */
+    private static int crcItu(byte[] data, int start, int end) {
+        int crc = 0xFFFF;
+        for (int i = start; i < end; i++) {
+            crc ^= data[i] & 0xFF;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0x8408 : crc >>> 1;
+            }
+        }
+        return ~crc & 0xFFFF;
+    }
+
     /**
      * Calculate CRC-16/XMODEM checksum
      */
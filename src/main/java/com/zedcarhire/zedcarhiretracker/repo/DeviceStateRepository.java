@@ -0,0 +1,9 @@
+package com.zedcarhire.zedcarhiretracker.repo;
+
+import com.zedcarhire.zedcarhiretracker.model.DeviceState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DeviceStateRepository extends JpaRepository<DeviceState, String> {
+}
@@ -1,9 +1,12 @@
 package com.zedcarhire.zedcarhiretracker.repo;
 
 
+import com.zedcarhire.zedcarhiretracker.model.TrackPoint;
 import com.zedcarhire.zedcarhiretracker.model.TrackerData;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -11,6 +14,10 @@ import java.util.Optional;
 
 public interface TrackerDataRepository extends JpaRepository<TrackerData, Long> {
 
+    // Projection used by the tracking APIs - skips id and the raw_hex LOB
+    String TRACK_POINT = "new com.zedcarhire.zedcarhiretracker.model.TrackPoint(" +
+            "t.imei, t.latitude, t.longitude, t.speedKph, t.course, t.acc, t.batteryMv, t.mileageM, t.gpsTime)";
+
     List<TrackerData> findTop100ByImeiOrderByGpsTimeDesc(String imei);
 
     @Query("select t from TrackerData t where (:imei is null or t.imei = :imei) " +
@@ -34,4 +41,35 @@ public interface TrackerDataRepository extends JpaRepository<TrackerData, Long>
             LocalDateTime start,
             LocalDateTime end
     );
+
+    // ---- TrackPoint projections ----
+
+    @Query("select " + TRACK_POINT + " from TrackerData t where t.imei = :imei " +
+            "and t.gpsTime between :start and :end order by t.gpsTime asc")
+    List<TrackPoint> historyPoints(@Param("imei") String imei,
+                                   @Param("start") LocalDateTime start,
+                                   @Param("end") LocalDateTime end);
+
+    // Several vehicles in one range scan of idx_imei_time; rows come grouped by IMEI
+    @Query("select " + TRACK_POINT + " from TrackerData t where t.imei in :imeis " +
+            "and t.gpsTime between :start and :end order by t.imei asc, t.gpsTime asc")
+    List<TrackPoint> fleetHistoryPoints(@Param("imeis") List<String> imeis,
+                                        @Param("start") LocalDateTime start,
+                                        @Param("end") LocalDateTime end,
+                                        Pageable limit);
+
+    @Query("select " + TRACK_POINT + " from TrackerData t where (:imei is null or t.imei = :imei) " +
+            "and (:from is null or t.gpsTime >= :from) and (:to is null or t.gpsTime <= :to) " +
+            "order by t.gpsTime desc")
+    List<TrackPoint> searchPoints(@Param("imei") String imei,
+                                  @Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to);
+
+    @Query("select " + TRACK_POINT + " from TrackerData t where t.imei in :imeis and t.gpsTime = " +
+            "(select max(x.gpsTime) from TrackerData x where x.imei = t.imei)")
+    List<TrackPoint> lastPointsForImeis(@Param("imeis") List<String> imeis);
+
+    // Call with PageRequest.of(0, 1) for the latest point
+    @Query("select " + TRACK_POINT + " from TrackerData t where t.imei = :imei order by t.gpsTime desc")
+    List<TrackPoint> latestPoints(@Param("imei") String imei, Pageable page);
 }
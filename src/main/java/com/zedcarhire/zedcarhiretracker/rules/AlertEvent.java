@@ -0,0 +1,22 @@
+package com.zedcarhire.zedcarhiretracker.rules;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * An alert raised by the rule engine. {@code seq} increases by one per alert, so clients
+ * can poll /api/alerts?after=seq for new ones.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AlertEvent(
+        long seq,
+        LocalDateTime time,
+        String imei,
+        String tenant,
+        String rule,
+        Double latitude,
+        Double longitude,
+        Double speedKph
+) {
+}
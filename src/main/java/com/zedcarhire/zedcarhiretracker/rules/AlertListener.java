@@ -0,0 +1,9 @@
+package com.zedcarhire.zedcarhiretracker.rules;
+
+/**
+ * Receives alerts on the rule engine's dispatcher thread, never on an ingest thread.
+ * Register a Spring bean implementing this to be called for every alert.
+ */
+public interface AlertListener {
+    void onAlert(AlertEvent event);
+}
@@ -0,0 +1,43 @@
+package com.zedcarhire.zedcarhiretracker.rules;
+
+/**
+ * Compiled predicate over a Fields context. Built once by RuleParser; evaluation is
+ * plain array reads and comparisons with no allocation.
+ */
+@FunctionalInterface
+public interface Condition {
+
+    boolean test(double[] ctx);
+
+    static Condition compare(int slot, String op, double value) {
+        switch (op) {
+            case ">":
+                return ctx -> ctx[slot] > value;
+            case ">=":
+                return ctx -> ctx[slot] >= value;
+            case "<":
+                return ctx -> ctx[slot] < value;
+            case "<=":
+                return ctx -> ctx[slot] <= value;
+            case "==":
+                return ctx -> ctx[slot] == value;
+            case "!=":
+                // NaN (never reported) does not count as "different"
+                return ctx -> !Double.isNaN(ctx[slot]) && ctx[slot] != value;
+            default:
+                throw new IllegalArgumentException("unknown operator " + op);
+        }
+    }
+
+    static Condition and(Condition a, Condition b) {
+        return ctx -> a.test(ctx) && b.test(ctx);
+    }
+
+    static Condition or(Condition a, Condition b) {
+        return ctx -> a.test(ctx) || b.test(ctx);
+    }
+
+    static Condition not(Condition a) {
+        return ctx -> !a.test(ctx);
+    }
+}
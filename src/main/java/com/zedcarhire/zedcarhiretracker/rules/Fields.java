@@ -0,0 +1,96 @@
+package com.zedcarhire.zedcarhiretracker.rules;
+
+import com.zedcarhire.zedcarhiretracker.protocol.Decoded;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Values a rule can test, as slots in a per-device double[] context.
+ *
+ * Each packet only carries some of them; fill() writes those and returns a bitmask of
+ * the slots it touched, so the engine can skip rules that read none of them. Slots a
+ * device has never reported stay NaN, and every comparison with NaN is false.
+ */
+public final class Fields {
+
+    public static final int SPEED = 0;       // km/h
+    public static final int ACC = 1;         // 1 = ignition on
+    public static final int BATTERY = 2;     // mV
+    public static final int EXTERNAL = 3;    // external power mV (0x94 sub-type 0x00)
+    public static final int CHARGING = 4;    // 1 = on external power
+    public static final int ALARM = 5;       // terminal info bits 3-5: 1 shock, 2 power cut, 3 low battery, 4 SOS
+    public static final int GSM = 6;         // 0..4
+    public static final int VOLTAGE = 7;     // voltage level 0..6
+    public static final int LAT = 8;
+    public static final int LNG = 9;
+    public static final int HOUR = 10;       // server local time of the packet
+    public static final int MINUTE = 11;     // minute of day
+    public static final int WEEKDAY = 12;    // 1 = Monday .. 7 = Sunday
+
+    public static final int COUNT = 13;
+
+    // Clock slots are refreshed on every packet
+    public static final int CLOCK_MASK = (1 << HOUR) | (1 << MINUTE) | (1 << WEEKDAY);
+
+    private static final Map<String, Integer> NAMES = Map.ofEntries(
+            Map.entry("speed", SPEED),
+            Map.entry("acc", ACC),
+            Map.entry("battery", BATTERY),
+            Map.entry("external", EXTERNAL),
+            Map.entry("charging", CHARGING),
+            Map.entry("alarm", ALARM),
+            Map.entry("gsm", GSM),
+            Map.entry("voltage", VOLTAGE),
+            Map.entry("lat", LAT),
+            Map.entry("lng", LNG),
+            Map.entry("hour", HOUR),
+            Map.entry("minute", MINUTE),
+            Map.entry("weekday", WEEKDAY)
+    );
+
+    private Fields() {
+    }
+
+    /**
+     * @return slot of the field, or -1 if unknown
+     */
+    public static int index(String name) {
+        Integer i = NAMES.get(name.toLowerCase());
+        return i != null ? i : -1;
+    }
+
+    public static double[] empty() {
+        double[] ctx = new double[COUNT];
+        java.util.Arrays.fill(ctx, Double.NaN);
+        return ctx;
+    }
+
+    /**
+     * Copies what the packet carries into ctx
+     * @return bitmask of the slots written
+     */
+    public static int fill(Decoded d, LocalDateTime now, double[] ctx) {
+        int mask = 0;
+        if (d.speedKph != null) mask |= set(ctx, SPEED, d.speedKph);
+        if (d.acc != null) mask |= set(ctx, ACC, d.acc);
+        if (d.batteryMv != null) mask |= set(ctx, BATTERY, d.batteryMv);
+        if (d.externalMv != null) mask |= set(ctx, EXTERNAL, d.externalMv);
+        if (d.charging != null) mask |= set(ctx, CHARGING, d.charging ? 1 : 0);
+        if (d.terminalInfo != null) mask |= set(ctx, ALARM, (d.terminalInfo >> 3) & 0x07);
+        if (d.gsmSignal != null) mask |= set(ctx, GSM, d.gsmSignal);
+        if (d.voltageLevel != null) mask |= set(ctx, VOLTAGE, d.voltageLevel);
+        if (d.latitude != null && d.longitude != null) {
+            mask |= set(ctx, LAT, d.latitude) | set(ctx, LNG, d.longitude);
+        }
+        ctx[HOUR] = now.getHour();
+        ctx[MINUTE] = now.getHour() * 60 + now.getMinute();
+        ctx[WEEKDAY] = now.getDayOfWeek().getValue();
+        return mask | CLOCK_MASK;
+    }
+
+    private static int set(double[] ctx, int slot, double value) {
+        ctx[slot] = value;
+        return 1 << slot;
+    }
+}
@@ -0,0 +1,30 @@
+package com.zedcarhire.zedcarhiretracker.rules;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * One compiled rule.
+ *
+ * @param id        index into each device's rule state arrays
+ * @param group     tenant the rule applies to, or "*" for every device
+ * @param mask      Fields slots the condition reads; the rule is only evaluated when a packet touches one
+ * @param forMs     condition must hold this long before the alert fires (debounce)
+ * @param cooldownMs minimum time between two alerts of this rule for one device
+ * @param silentMs  for no-report rules: alert when a device has been silent this long
+ */
+public record Rule(
+        int id,
+        String name,
+        String group,
+        @JsonIgnore Condition condition,
+        @JsonIgnore int mask,
+        long forMs,
+        long cooldownMs,
+        long silentMs,
+        String source
+) {
+
+    public boolean isSilence() {
+        return silentMs > 0;
+    }
+}
@@ -0,0 +1,335 @@
+package com.zedcarhire.zedcarhiretracker.rules;
+
+import com.zedcarhire.zedcarhiretracker.protocol.Decoded;
+import com.zedcarhire.zedcarhiretracker.service.DeviceRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Alert rules evaluated inline on every decoded packet.
+ *
+ * Rules are compiled once from the rules file (see RuleParser) and indexed by group, so a
+ * packet only runs the global rules plus those of its device's tenant, and a rule is
+ * skipped unless the packet touched a field it reads. Per-device state (last known
+ * values, debounce start, last alert) lives in flat arrays indexed by rule id.
+ *
+ * Alerts go into a bounded queue drained by one dispatcher thread, which keeps the recent
+ * history for /api/alerts and calls the AlertListener beans; when the queue is full the
+ * alert is dropped and counted rather than blocking ingest. No-report rules are checked
+ * by a periodic sweep. The rules file is reloaded when it changes on disk.
+ */
+@Service
+public class RuleEngine {
+
+    private static final String CLASSPATH = "classpath:";
+
+    @Value("${tracking.rules.enabled:true}")
+    private boolean enabled;
+
+    // File path, or classpath:... (not reloaded)
+    @Value("${tracking.rules.file:classpath:rules/alerts.rules}")
+    private String file;
+
+    @Value("${tracking.rules.queueSize:10000}")
+    private int queueSize;
+
+    @Value("${tracking.rules.historySize:1000}")
+    private int historySize;
+
+    private final DeviceRegistry registry;
+    private final ObjectProvider<AlertListener> listeners;
+
+    private volatile Compiled compiled = new Compiled(List.of());
+    private volatile long fileModified;
+
+    private final Map<String, DeviceRules> devices = new ConcurrentHashMap<>();
+
+    private BlockingQueue<AlertEvent> queue;
+    private final ArrayDeque<AlertEvent> history = new ArrayDeque<>();
+    private final AtomicLong seq = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private Thread dispatcher;
+
+    // Replaced in tests
+    LongSupplier clock = System::currentTimeMillis;
+
+    /**
+     * Rules split by kind and indexed by group ("*" = every device)
+     */
+    private static final class Compiled {
+        final List<Rule> rules;
+        final Map<String, Rule[]> onPacket = new HashMap<>();
+        final Map<String, Rule[]> onSilence = new HashMap<>();
+
+        Compiled(List<Rule> rules) {
+            this.rules = rules;
+            Map<String, List<Rule>> packet = rules.stream().filter(r -> !r.isSilence())
+                    .collect(Collectors.groupingBy(Rule::group));
+            Map<String, List<Rule>> silence = rules.stream().filter(Rule::isSilence)
+                    .collect(Collectors.groupingBy(Rule::group));
+            packet.forEach((g, list) -> onPacket.put(g, list.toArray(new Rule[0])));
+            silence.forEach((g, list) -> onSilence.put(g, list.toArray(new Rule[0])));
+        }
+    }
+
+    /**
+     * Per-device state; guarded by its own monitor
+     */
+    private static final class DeviceRules {
+        final double[] ctx = Fields.empty();
+        String tenant;
+        long lastReport;
+        Compiled compiledFor;
+        long[] since;       // when the condition started holding, 0 = not holding
+        long[] lastFired;
+        boolean[] active;   // alerted for the current episode
+
+        void reset(Compiled c) {
+            int n = c.rules.size();
+            since = new long[n];
+            lastFired = new long[n];
+            active = new boolean[n];
+            compiledFor = c;
+        }
+    }
+
+    public RuleEngine(DeviceRegistry registry, ObjectProvider<AlertListener> listeners) {
+        this.registry = registry;
+        this.listeners = listeners;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            System.out.println("[RULES] Disabled");
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueSize);
+        reload();
+
+        dispatcher = new Thread(this::dispatch, "alert-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (dispatcher != null) dispatcher.interrupt();
+    }
+
+    /**
+     * Re-reads the rules file if it changed. A file that does not parse is reported and
+     * the current rules stay in force.
+     */
+    @Scheduled(fixedDelayString = "${tracking.rules.reloadMs:30000}")
+    public void reload() {
+        if (!enabled) return;
+        try {
+            List<String> lines;
+            if (file.startsWith(CLASSPATH)) {
+                if (fileModified != 0) return;
+                try (InputStream in = getClass().getClassLoader().getResourceAsStream(file.substring(CLASSPATH.length()))) {
+                    if (in == null) {
+                        System.err.println("[RULES] Rules not found: " + file);
+                        fileModified = -1;
+                        return;
+                    }
+                    lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)).lines().toList();
+                }
+                fileModified = -1;
+            } else {
+                Path path = Paths.get(file);
+                long modified = Files.getLastModifiedTime(path).toMillis();
+                if (modified == fileModified) return;
+                lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+                fileModified = modified;
+            }
+
+            compiled = new Compiled(new RuleParser().parse(lines));
+            System.out.println("[RULES] Loaded " + compiled.rules.size() + " rules from " + file);
+        } catch (Exception e) {
+            System.err.println("[RULES] Could not load " + file + ", keeping " + compiled.rules.size() +
+                    " rules: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Called by the TCP server for every decoded packet of a logged-in device
+     */
+    public void evaluate(String imei, Decoded d) {
+        if (!enabled) return;
+        Compiled c = compiled;
+        long now = clock.getAsLong();
+        DeviceRules s = devices.computeIfAbsent(imei, k -> new DeviceRules());
+
+        synchronized (s) {
+            if (s.compiledFor != c) s.reset(c);
+            s.tenant = registry.tenantOf(imei);
+            s.lastReport = now;
+            int mask = Fields.fill(d, LocalDateTime.now(), s.ctx);
+
+            run(imei, s, c.onPacket.get(DeviceRegistry.ALL_TENANTS), mask, now);
+            if (s.tenant != null) run(imei, s, c.onPacket.get(s.tenant), mask, now);
+
+            // Reporting again re-arms no-report rules
+            rearm(s, c.onSilence.get(DeviceRegistry.ALL_TENANTS));
+            if (s.tenant != null) rearm(s, c.onSilence.get(s.tenant));
+        }
+    }
+
+    private void run(String imei, DeviceRules s, Rule[] rules, int mask, long now) {
+        if (rules == null) return;
+        for (Rule r : rules) {
+            if ((r.mask() & mask) == 0) continue;
+            int id = r.id();
+
+            if (!r.condition().test(s.ctx)) {
+                s.since[id] = 0;
+                s.active[id] = false;
+                continue;
+            }
+            if (s.since[id] == 0) s.since[id] = now;
+            if (s.active[id] || now - s.since[id] < r.forMs()) continue;
+
+            // Still in cooldown: stay armed so the episode alerts once the cooldown ends
+            s.active[id] = fire(imei, s, r, now);
+        }
+    }
+
+    private static void rearm(DeviceRules s, Rule[] rules) {
+        if (rules == null) return;
+        for (Rule r : rules) s.active[r.id()] = false;
+    }
+
+    /**
+     * No-report rules: alert once per silence for devices quiet longer than the rule allows
+     */
+    @Scheduled(fixedDelayString = "${tracking.rules.sweepMs:30000}")
+    public void sweep() {
+        if (!enabled) return;
+        Compiled c = compiled;
+        Rule[] global = c.onSilence.get(DeviceRegistry.ALL_TENANTS);
+        long now = clock.getAsLong();
+
+        for (Map.Entry<String, DeviceRules> e : devices.entrySet()) {
+            DeviceRules s = e.getValue();
+            synchronized (s) {
+                if (s.compiledFor != c) s.reset(c);
+                silence(e.getKey(), s, global, now);
+                if (s.tenant != null) silence(e.getKey(), s, c.onSilence.get(s.tenant), now);
+            }
+        }
+    }
+
+    private void silence(String imei, DeviceRules s, Rule[] rules, long now) {
+        if (rules == null) return;
+        for (Rule r : rules) {
+            int id = r.id();
+            if (s.active[id] || now - s.lastReport < r.silentMs()) continue;
+            s.active[id] = fire(imei, s, r, now);
+        }
+    }
+
+    /**
+     * @return false if the rule is still in cooldown for this device and nothing was raised
+     */
+    private boolean fire(String imei, DeviceRules s, Rule r, long now) {
+        int id = r.id();
+        if (s.lastFired[id] != 0 && now - s.lastFired[id] < r.cooldownMs()) return false;
+        s.lastFired[id] = now;
+
+        AlertEvent event = new AlertEvent(seq.incrementAndGet(), LocalDateTime.now(), imei, s.tenant, r.name(),
+                value(s.ctx[Fields.LAT]), value(s.ctx[Fields.LNG]), value(s.ctx[Fields.SPEED]));
+        if (!queue.offer(event)) {
+            dropped.incrementAndGet();
+        }
+        return true;
+    }
+
+    private static Double value(double v) {
+        return Double.isNaN(v) ? null : v;
+    }
+
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            AlertEvent event;
+            try {
+                event = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            System.out.println("[ALERT] " + event.rule() + " → " + event.imei() +
+                    (event.latitude() != null ? " at " + event.latitude() + "," + event.longitude() : ""));
+            synchronized (history) {
+                history.addLast(event);
+                while (history.size() > historySize) history.removeFirst();
+            }
+            for (AlertListener listener : listeners) {
+                try {
+                    listener.onAlert(event);
+                } catch (Exception e) {
+                    System.err.println("[ALERT] Listener " + listener.getClass().getSimpleName() + " failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Recent alerts with seq > after, oldest first
+     * @param tenant caller's tenant; null or "*" sees all
+     */
+    public List<AlertEvent> recent(long after, int limit, String tenant) {
+        boolean all = tenant == null || DeviceRegistry.ALL_TENANTS.equals(tenant);
+        List<AlertEvent> out = new ArrayList<>();
+        synchronized (history) {
+            for (AlertEvent e : history) {
+                if (e.seq() <= after || (!all && !tenant.equals(e.tenant()))) continue;
+                out.add(e);
+                if (out.size() >= limit) break;
+            }
+        }
+        return out;
+    }
+
+    public List<Rule> rules(String tenant) {
+        boolean all = tenant == null || DeviceRegistry.ALL_TENANTS.equals(tenant);
+        return compiled.rules.stream()
+                .filter(r -> all || r.group().equals(DeviceRegistry.ALL_TENANTS) || r.group().equals(tenant))
+                .collect(Collectors.toList());
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "rules", compiled.rules.size(),
+                "devices", devices.size(),
+                "raised", seq.get(),
+                "dropped", dropped.get(),
+                "queued", queue != null ? queue.size() : 0
+        );
+    }
+}
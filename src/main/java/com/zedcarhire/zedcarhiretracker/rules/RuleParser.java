@@ -0,0 +1,164 @@
+package com.zedcarhire.zedcarhiretracker.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the rules file, one rule per line ('#' starts a comment):
+ *
+ *   name [group=tenant] when EXPR [for DURATION] [cooldown DURATION]
+ *   name [group=tenant] silent DURATION [cooldown DURATION]
+ *
+ * EXPR combines "field op number" comparisons (op is > >= < <= == !=) with and, or,
+ * not and parentheses; fields are listed in {@link Fields}. Durations are 500ms, 30s,
+ * 10m, 2h or 1d. Example:
+ *
+ *   overspeed when speed > 120 for 30s cooldown 10m
+ *   after_hours group=acme when acc == 1 and (hour >= 20 or hour < 6) cooldown 1h
+ *   no_report silent 30m
+ */
+public class RuleParser {
+
+    private static final Pattern TOKEN = Pattern.compile("\\(|\\)|>=|<=|==|!=|=|>|<|[^\\s()<>=!]+");
+    private static final Pattern DURATION = Pattern.compile("(\\d+)(ms|s|m|h|d)");
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+
+    private List<String> tokens;
+    private int pos;
+    private int mask;
+
+    /**
+     * @throws IllegalArgumentException naming the line of the first error
+     */
+    public List<Rule> parse(List<String> lines) {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            line = line.trim();
+            if (line.isEmpty()) continue;
+            try {
+                rules.add(parseRule(rules.size(), line));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("line " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        return rules;
+    }
+
+    private Rule parseRule(int id, String line) {
+        tokens = new ArrayList<>();
+        Matcher m = TOKEN.matcher(line);
+        while (m.find()) tokens.add(m.group());
+        pos = 0;
+        mask = 0;
+
+        String name = next();
+        if (!NAME.matcher(name).matches()) throw new IllegalArgumentException("bad rule name '" + name + "'");
+
+        String group = "*";
+        if (peek("group")) {
+            next();
+            expect("=");
+            group = next();
+        }
+
+        Condition condition = null;
+        long forMs = 0, cooldownMs = 0, silentMs = 0;
+        String keyword = next();
+        if (keyword.equals("when")) {
+            condition = parseOr();
+        } else if (keyword.equals("silent")) {
+            silentMs = duration(next());
+        } else {
+            throw new IllegalArgumentException("expected 'when' or 'silent', got '" + keyword + "'");
+        }
+
+        while (pos < tokens.size()) {
+            String option = next();
+            if (option.equals("for") && condition != null) forMs = duration(next());
+            else if (option.equals("cooldown")) cooldownMs = duration(next());
+            else throw new IllegalArgumentException("unexpected '" + option + "'");
+        }
+
+        return new Rule(id, name, group, condition, mask, forMs, cooldownMs, silentMs, line);
+    }
+
+    private Condition parseOr() {
+        Condition c = parseAnd();
+        while (peek("or")) {
+            next();
+            c = Condition.or(c, parseAnd());
+        }
+        return c;
+    }
+
+    private Condition parseAnd() {
+        Condition c = parseUnary();
+        while (peek("and")) {
+            next();
+            c = Condition.and(c, parseUnary());
+        }
+        return c;
+    }
+
+    private Condition parseUnary() {
+        if (peek("not")) {
+            next();
+            return Condition.not(parseUnary());
+        }
+        if (peek("(")) {
+            next();
+            Condition c = parseOr();
+            expect(")");
+            return c;
+        }
+        String field = next();
+        int slot = Fields.index(field);
+        if (slot < 0) throw new IllegalArgumentException("unknown field '" + field + "'");
+        mask |= 1 << slot;
+
+        String op = next();
+        String value = next();
+        try {
+            return Condition.compare(slot, op, Double.parseDouble(value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("expected a number after " + field + " " + op + ", got '" + value + "'");
+        }
+    }
+
+    static long duration(String s) {
+        Matcher m = DURATION.matcher(s);
+        if (!m.matches()) throw new IllegalArgumentException("bad duration '" + s + "'");
+        long n = Long.parseLong(m.group(1));
+        switch (m.group(2)) {
+            case "ms":
+                return n;
+            case "s":
+                return n * 1000;
+            case "m":
+                return n * 60_000;
+            case "h":
+                return n * 3_600_000;
+            default:
+                return n * 86_400_000;
+        }
+    }
+
+    private boolean peek(String token) {
+        return pos < tokens.size() && tokens.get(pos).equalsIgnoreCase(token);
+    }
+
+    private String next() {
+        if (pos >= tokens.size()) throw new IllegalArgumentException("unexpected end of rule");
+        return tokens.get(pos++);
+    }
+
+    private void expect(String token) {
+        String t = next();
+        if (!t.equals(token)) throw new IllegalArgumentException("expected '" + token + "', got '" + t + "'");
+    }
+}
@@ -0,0 +1,230 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import com.zedcarhire.zedcarhiretracker.model.TrackerData;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Incremental heatmap density: every saved fix is counted in one cell per configured zoom.
+ *
+ * Tiles are the usual Web Mercator z/x/y tiles, each split into a 64x64 grid. Counts and
+ * dwell time are accumulated in memory per (zoom, day, cell) and added to density_cells
+ * with one batched upsert per flush, so the table only ever sees additive writes and a
+ * tile for any date range is a primary-key range scan instead of a tracker_data scan.
+ * The upsert runs in one transaction: a failed flush leaves nothing applied, so putting
+ * its counts back for the next flush never adds a cell twice.
+ *
+ * Dwell is the time until the device's next fix, credited to the cell it was in, with
+ * gaps longer than maxGapMinutes (device off, no signal) ignored.
+ */
+@Service
+public class DensityAggregator {
+
+    public static final int GRID_BITS = 6;
+    public static final int GRID = 1 << GRID_BITS;  // 64x64 cells per tile
+
+    private static final int MAX_ZOOM = 15;         // cell coordinates stay within 21 bits
+
+    private static final String UPSERT =
+            "INSERT INTO density_cells (zoom, tile_x, tile_y, fix_date, cell, fixes, dwell_s) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE fixes = fixes + VALUES(fixes), dwell_s = dwell_s + VALUES(dwell_s)";
+
+    private static final String TILE =
+            "SELECT cell, SUM(fixes), SUM(dwell_s) FROM density_cells " +
+            "WHERE zoom = ? AND tile_x = ? AND tile_y = ? AND fix_date BETWEEN ? AND ? " +
+            "GROUP BY cell ORDER BY cell";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    @Value("${tracking.density.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tracking.density.zooms:8,11,14}")
+    private String zoomList;
+
+    @Value("${tracking.density.maxGapMinutes:10}")
+    private int maxGapMinutes;
+
+    private int[] zooms;
+
+    // packed (zoom, day, cellX, cellY) -> {fixes, dwell seconds}, drained by flush()
+    private final Map<Long, long[]> pending = new ConcurrentHashMap<>();
+
+    // Previous fix per IMEI, for dwell
+    private final Map<String, LastFix> lastFix = new ConcurrentHashMap<>();
+
+    private static final class LastFix {
+        final long epochSecond;
+        final long[] keys;
+
+        LastFix(long epochSecond, long[] keys) {
+            this.epochSecond = epochSecond;
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * Precomputed density of one tile; cells are row * 64 + column, only non-empty ones listed
+     */
+    public record Tile(int z, int x, int y, int grid, LocalDate from, LocalDate to,
+                       int[] cells, long[] fixes, long[] dwellSeconds) {
+    }
+
+    public DensityAggregator(JdbcTemplate jdbc, PlatformTransactionManager transactions) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactions);
+    }
+
+    @PostConstruct
+    public void init() {
+        zooms = Arrays.stream(zoomList.split(","))
+                .map(String::trim)
+                .filter(z -> !z.isEmpty())
+                .mapToInt(Integer::parseInt)
+                .filter(z -> z >= 0 && z <= MAX_ZOOM)
+                .distinct()
+                .sorted()
+                .toArray();
+        System.out.println("[DENSITY] " + (enabled ? "Aggregating zooms " + Arrays.toString(zooms) : "Disabled"));
+    }
+
+    public boolean hasZoom(int z) {
+        return Arrays.binarySearch(zooms, z) >= 0;
+    }
+
+    /**
+     * Called for every stored fix
+     */
+    public void record(TrackerData td) {
+        if (!enabled || td.getImei() == null || td.getGpsTime() == null) return;
+        if (Math.abs(td.getLatitude()) > 85 || Math.abs(td.getLongitude()) > 180) return;
+
+        long day = td.getGpsTime().toLocalDate().toEpochDay();
+        long now = td.getGpsTime().toEpochSecond(ZoneOffset.UTC);
+
+        long[] keys = new long[zooms.length];
+        for (int i = 0; i < zooms.length; i++) {
+            keys[i] = key(zooms[i], day, td.getLatitude(), td.getLongitude());
+            add(keys[i], 1, 0);
+        }
+
+        LastFix prev = lastFix.get(td.getImei());
+        if (prev != null && now <= prev.epochSecond) return;  // late or duplicate fix: count only
+        lastFix.put(td.getImei(), new LastFix(now, keys));
+
+        if (prev != null) {
+            long gap = now - prev.epochSecond;
+            if (gap <= maxGapMinutes * 60L) {
+                for (long k : prev.keys) add(k, 0, gap);
+            }
+        }
+    }
+
+    private void add(long key, long fixes, long dwell) {
+        pending.compute(key, (k, v) -> {
+            if (v == null) v = new long[2];
+            v[0] += fixes;
+            v[1] += dwell;
+            return v;
+        });
+    }
+
+    /**
+     * zoom (5 bits) | epoch day (17 bits) | cell x (21 bits) | cell y (21 bits);
+     * cell x/y are tile x/y at zoom + 6
+     */
+    static long key(int zoom, long day, double lat, double lng) {
+        int cz = zoom + GRID_BITS;
+        double n = 1L << cz;
+        double latRad = Math.toRadians(lat);
+        long cx = clamp((long) Math.floor((lng + 180.0) / 360.0 * n), (long) n);
+        long cy = clamp((long) Math.floor((1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2 * n), (long) n);
+        return ((long) zoom << 59) | (day << 42) | (cx << 21) | cy;
+    }
+
+    private static long clamp(long v, long n) {
+        return Math.max(0, Math.min(n - 1, v));
+    }
+
+    /**
+     * UPSERT parameters for a packed key: zoom, tile x, tile y, day, cell, fixes, dwell
+     */
+    static Object[] row(long key, long fixes, long dwell) {
+        int zoom = (int) (key >>> 59);
+        long day = (key >>> 42) & 0x1FFFF;
+        int cx = (int) ((key >>> 21) & 0x1FFFFF);
+        int cy = (int) (key & 0x1FFFFF);
+        return new Object[]{
+                zoom, cx >> GRID_BITS, cy >> GRID_BITS, Date.valueOf(LocalDate.ofEpochDay(day)),
+                (cy & (GRID - 1)) * GRID + (cx & (GRID - 1)), fixes, dwell
+        };
+    }
+
+    @Scheduled(fixedDelayString = "${tracking.density.flushMs:60000}")
+    public void flush() {
+        if (pending.isEmpty()) return;
+
+        List<Object[]> batch = new ArrayList<>(pending.size());
+        List<Long> drained = new ArrayList<>(pending.size());
+        for (Long key : pending.keySet()) {
+            long[] v = pending.remove(key);
+            if (v == null) continue;
+            drained.add(key);
+            batch.add(row(key, v[0], v[1]));
+        }
+
+        try {
+            tx.executeWithoutResult(status -> jdbc.batchUpdate(UPSERT, batch));
+        } catch (Exception e) {
+            System.err.println("[DENSITY] Flush of " + batch.size() + " cells failed, will retry: " + e.getMessage());
+            for (int i = 0; i < drained.size(); i++) {
+                Object[] row = batch.get(i);
+                add(drained.get(i), (Long) row[5], (Long) row[6]);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    /**
+     * Summed density of tile z/x/y over [from, to]; counts not yet flushed are not included
+     */
+    public Tile tile(int z, int x, int y, LocalDate from, LocalDate to) {
+        // SUM(fixes) over a long range can pass Integer.MAX_VALUE for a busy cell
+        List<long[]> cells = new ArrayList<>();
+        jdbc.query(TILE, (RowCallbackHandler) rs -> cells.add(new long[]{rs.getInt(1), rs.getLong(2), rs.getLong(3)}),
+                z, x, y, Date.valueOf(from), Date.valueOf(to));
+
+        int n = cells.size();
+        int[] cell = new int[n];
+        long[] fixes = new long[n];
+        long[] dwellSeconds = new long[n];
+        for (int i = 0; i < n; i++) {
+            cell[i] = (int) cells.get(i)[0];
+            fixes[i] = cells.get(i)[1];
+            dwellSeconds[i] = cells.get(i)[2];
+        }
+        return new Tile(z, x, y, GRID, from, to, cell, fixes, dwellSeconds);
+    }
+}
@@ -0,0 +1,142 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import com.zedcarhire.zedcarhiretracker.model.RegisteredDevice;
+import com.zedcarhire.zedcarhiretracker.repo.DeviceRegistryRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * In-memory copy of device_registry: which IMEIs we operate and which tenant owns each.
+ *
+ * The TCP server checks it at login so unknown devices are dropped before any database
+ * work, and the API filters results by the caller's tenant with a map lookup instead of
+ * a join. The table is reloaded in the background and swapped in as a new immutable
+ * snapshot, so readers never lock.
+ *
+ * Scoped API keys fail closed: until a load succeeds, or while the registry is empty, they
+ * see no devices. Logins from unregistered IMEIs are only accepted with enforce=false,
+ * which is how a fresh install runs until its devices are registered.
+ */
+@Service
+public class DeviceRegistry {
+
+    // Tenant of API keys that may see every device
+    public static final String ALL_TENANTS = "*";
+
+    private final DeviceRegistryRepository repo;
+
+    // Reject logins from IMEIs not in the registry
+    @Value("${tracker.registry.enforce:true}")
+    private boolean enforce;
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of());
+    private volatile boolean loaded;
+
+    private static final class Snapshot {
+        final Map<String, String> tenantByImei;
+        final Map<String, Integer> devicesByTenant;
+
+        Snapshot(Map<String, String> tenantByImei) {
+            this.tenantByImei = tenantByImei;
+            Map<String, Integer> counts = new HashMap<>();
+            for (String tenant : tenantByImei.values()) {
+                counts.merge(tenant, 1, Integer::sum);
+            }
+            this.devicesByTenant = counts;
+        }
+    }
+
+    public DeviceRegistry(DeviceRegistryRepository repo) {
+        this.repo = repo;
+    }
+
+    @PostConstruct
+    public void load() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${tracker.registry.reloadMs:60000}",
+            initialDelayString = "${tracker.registry.reloadMs:60000}")
+    public void reload() {
+        Map<String, String> tenantByImei = new HashMap<>();
+        try {
+            for (RegisteredDevice d : repo.findAll()) {
+                if (d.isActive()) tenantByImei.put(d.getImei(), d.getTenant());
+            }
+        } catch (Exception e) {
+            System.err.println("[REGISTRY] Reload failed, " + (loaded
+                    ? "keeping " + snapshot.tenantByImei.size() + " devices"
+                    : "never loaded: scoped keys see no devices" + (enforce ? " and logins are refused" : "")) +
+                    ": " + e.getMessage());
+            return;
+        }
+
+        Snapshot previous = snapshot;
+        snapshot = new Snapshot(tenantByImei);
+        if (!loaded || !previous.tenantByImei.equals(tenantByImei)) {
+            System.out.println("[REGISTRY] " + tenantByImei.size() + " devices across " +
+                    snapshot.devicesByTenant.size() + " tenants" +
+                    (tenantByImei.isEmpty() && enforce ? " (empty - all logins refused)" : ""));
+        }
+        loaded = true;
+    }
+
+    /**
+     * Whether a device may log in
+     */
+    public boolean accepts(String imei) {
+        return !enforce || snapshot.tenantByImei.containsKey(imei);
+    }
+
+    /**
+     * Whether the registry has been read from the database at least once
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return tenant owning the device, or null if it is not registered
+     */
+    public String tenantOf(String imei) {
+        return snapshot.tenantByImei.get(imei);
+    }
+
+    /**
+     * @param tenant the caller's tenant (request attribute set by ApiKeyFilter); null or "*" sees everything,
+     *               any other tenant only its registered devices
+     */
+    public boolean canSee(String tenant, String imei) {
+        if (tenant == null || ALL_TENANTS.equals(tenant)) return true;
+        return tenant.equals(snapshot.tenantByImei.get(imei));
+    }
+
+    public List<String> visible(String tenant, Collection<String> imeis) {
+        List<String> out = new ArrayList<>(imeis.size());
+        for (String imei : imeis) {
+            if (canSee(tenant, imei)) out.add(imei);
+        }
+        return out;
+    }
+
+    /**
+     * Drops rows belonging to devices outside the tenant
+     */
+    public <T> List<T> filter(String tenant, List<T> rows, Function<T, String> imeiOf) {
+        if (tenant == null || ALL_TENANTS.equals(tenant)) return rows;
+        List<T> out = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            if (canSee(tenant, imeiOf.apply(row))) out.add(row);
+        }
+        return out;
+    }
+}
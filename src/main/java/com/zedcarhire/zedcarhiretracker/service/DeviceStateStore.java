@@ -0,0 +1,195 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import com.zedcarhire.zedcarhiretracker.model.DeviceState;
+import com.zedcarhire.zedcarhiretracker.protocol.Decoded;
+import com.zedcarhire.zedcarhiretracker.repo.DeviceStateRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory device health, updated in place from heartbeat, status, information and GPS packets.
+ *
+ * Updates only mark the IMEI dirty; a scheduled flush writes each dirty device with one
+ * batched upsert, so the database sees at most one write per device per interval no
+ * matter how often it reports.
+ */
+@Service
+public class DeviceStateStore {
+
+    private static final String UPSERT =
+            "INSERT INTO device_state (imei, acc, charging, battery_mv, voltage_level, gsm_signal, terminal_info, external_mv, " +
+            "latitude, longitude, speed_kph, last_heartbeat, last_fix, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE acc = VALUES(acc), charging = VALUES(charging), battery_mv = VALUES(battery_mv), " +
+            "voltage_level = VALUES(voltage_level), gsm_signal = VALUES(gsm_signal), terminal_info = VALUES(terminal_info), external_mv = VALUES(external_mv), " +
+            "latitude = VALUES(latitude), longitude = VALUES(longitude), speed_kph = VALUES(speed_kph), " +
+            "last_heartbeat = VALUES(last_heartbeat), last_fix = VALUES(last_fix), updated_at = VALUES(updated_at)";
+
+    private final JdbcTemplate jdbc;
+    private final DeviceStateRepository repo;
+
+    private final Map<String, DeviceState> states = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    public DeviceStateStore(JdbcTemplate jdbc, DeviceStateRepository repo) {
+        this.jdbc = jdbc;
+        this.repo = repo;
+    }
+
+    @PostConstruct
+    public void load() {
+        try {
+            for (DeviceState s : repo.findAll()) {
+                states.put(s.getImei(), s);
+            }
+            System.out.println("[STATE] Loaded " + states.size() + " device states");
+        } catch (Exception e) {
+            System.err.println("[STATE] Could not load device states: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Heartbeat (0x13) / status (0x23)
+     */
+    public void onStatus(String imei, Decoded d) {
+        DeviceState s = state(imei);
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (s) {
+            if (d.acc != null) s.setAcc(d.acc);
+            if (d.charging != null) s.setCharging(d.charging);
+            if (d.batteryMv != null) s.setBatteryMv(d.batteryMv);
+            if (d.voltageLevel != null) s.setVoltageLevel(d.voltageLevel);
+            if (d.gsmSignal != null) s.setGsmSignal(d.gsmSignal);
+            if (d.terminalInfo != null) s.setTerminalInfo(d.terminalInfo);
+            s.setLastHeartbeat(now);
+            s.setUpdatedAt(now);
+        }
+        dirty.add(imei);
+    }
+
+    /**
+     * Information transmission (0x94) - external (vehicle) voltage
+     */
+    public void onInfo(String imei, Decoded d) {
+        DeviceState s = state(imei);
+        synchronized (s) {
+            if (d.externalMv != null) s.setExternalMv(d.externalMv);
+            s.setUpdatedAt(LocalDateTime.now());
+        }
+        dirty.add(imei);
+    }
+
+    /**
+     * GPS fix - keeps last position and any ACC/voltage the fix carried
+     */
+    public void onFix(String imei, Decoded d) {
+        DeviceState s = state(imei);
+        synchronized (s) {
+            if (d.acc != null) s.setAcc(d.acc);
+            if (d.batteryMv != null) s.setBatteryMv(d.batteryMv);
+            s.setLatitude(d.latitude);
+            s.setLongitude(d.longitude);
+            s.setSpeedKph(d.speedKph);
+            s.setLastFix(d.gpsTime != null ? d.gpsTime : LocalDateTime.now());
+            s.setUpdatedAt(LocalDateTime.now());
+        }
+        dirty.add(imei);
+    }
+
+    private DeviceState state(String imei) {
+        return states.computeIfAbsent(imei, k -> {
+            DeviceState s = new DeviceState();
+            s.setImei(k);
+            return s;
+        });
+    }
+
+    /**
+     * Consistent copy of one device's state, or null if it never reported
+     */
+    public DeviceState get(String imei) {
+        DeviceState s = states.get(imei);
+        return s == null ? null : copy(s);
+    }
+
+    public List<DeviceState> snapshot(Collection<String> imeis) {
+        List<DeviceState> out = new ArrayList<>();
+        if (imeis == null) {
+            for (DeviceState s : states.values()) out.add(copy(s));
+        } else {
+            for (String imei : imeis) {
+                DeviceState s = states.get(imei);
+                if (s != null) out.add(copy(s));
+            }
+        }
+        return out;
+    }
+
+    @Scheduled(fixedDelayString = "${tracker.deviceState.flushMs:30000}")
+    public void flush() {
+        if (dirty.isEmpty()) return;
+
+        List<String> imeis = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        for (String imei : dirty) {
+            dirty.remove(imei);
+            DeviceState s = states.get(imei);
+            if (s == null) continue;
+            imeis.add(imei);
+            synchronized (s) {
+                batch.add(new Object[]{
+                        s.getImei(), s.getAcc(), s.getCharging(), s.getBatteryMv(), s.getVoltageLevel(),
+                        s.getGsmSignal(), s.getTerminalInfo(), s.getExternalMv(), s.getLatitude(), s.getLongitude(), s.getSpeedKph(),
+                        s.getLastHeartbeat(), s.getLastFix(), s.getUpdatedAt()
+                });
+            }
+        }
+
+        try {
+            jdbc.batchUpdate(UPSERT, batch);
+            System.out.println("[STATE] Flushed " + batch.size() + " device states");
+        } catch (Exception e) {
+            // keep them dirty and retry next interval
+            dirty.addAll(imeis);
+            System.err.println("[STATE] Flush failed: " + e.getMessage());
+        }
+    }
+
+    // Last interval's updates would otherwise be lost on shutdown
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    private static DeviceState copy(DeviceState s) {
+        DeviceState c = new DeviceState();
+        synchronized (s) {
+            c.setImei(s.getImei());
+            c.setAcc(s.getAcc());
+            c.setCharging(s.getCharging());
+            c.setBatteryMv(s.getBatteryMv());
+            c.setVoltageLevel(s.getVoltageLevel());
+            c.setGsmSignal(s.getGsmSignal());
+            c.setTerminalInfo(s.getTerminalInfo());
+            c.setExternalMv(s.getExternalMv());
+            c.setLatitude(s.getLatitude());
+            c.setLongitude(s.getLongitude());
+            c.setSpeedKph(s.getSpeedKph());
+            c.setLastHeartbeat(s.getLastHeartbeat());
+            c.setLastFix(s.getLastFix());
+            c.setUpdatedAt(s.getUpdatedAt());
+        }
+        return c;
+    }
+}
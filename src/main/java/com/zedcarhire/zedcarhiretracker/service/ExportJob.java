@@ -0,0 +1,164 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One bulk export: a partition per IMEI, written by ExportService workers.
+ * Serialised as the job status returned by /api/exports.
+ *
+ * Status only moves forward - QUEUED → RUNNING → DONE, or to FAILED from either of the
+ * first two - with compare-and-set, so workers racing on the same job cannot undo a
+ * failure or finish a failed job.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExportJob {
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    private final String id;
+    private final String format;   // csv or gpx
+    private final List<String> imeis;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final String tenant;   // submitting API key's tenant; null = unscoped key
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    private final AtomicInteger partsDone = new AtomicInteger();
+    private final AtomicLong rows = new AtomicLong();
+
+    private final AtomicReference<Status> status = new AtomicReference<>(Status.QUEUED);
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+    private volatile Path file;
+    private volatile long bytes;
+
+    ExportJob(String id, String format, List<String> imeis, LocalDateTime from, LocalDateTime to, String tenant) {
+        this.id = id;
+        this.format = format;
+        this.imeis = imeis;
+        this.from = from;
+        this.to = to;
+        this.tenant = tenant;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public List<String> getImeis() {
+        return imeis;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    @JsonIgnore
+    public String getTenant() {
+        return tenant;
+    }
+
+    /**
+     * Unscoped keys see every job; a tenant only sees the jobs it submitted
+     */
+    public boolean visibleTo(String caller) {
+        return caller == null || DeviceRegistry.ALL_TENANTS.equals(caller) || Objects.equals(caller, tenant);
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public Status getStatus() {
+        return status.get();
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public int getPartsTotal() {
+        return imeis.size();
+    }
+
+    public int getPartsDone() {
+        return partsDone.get();
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    // e.g. export-<id>.csv.gz
+    public String getFileName() {
+        return "export-" + id + "." + format + ".gz";
+    }
+
+    @JsonIgnore
+    public Path getFile() {
+        return file;
+    }
+
+    void running() {
+        status.compareAndSet(Status.QUEUED, Status.RUNNING);
+    }
+
+    void addRows(long n) {
+        rows.addAndGet(n);
+    }
+
+    // @return true when this was the last partition
+    boolean partDone() {
+        return partsDone.incrementAndGet() == imeis.size();
+    }
+
+    /**
+     * @return false if the job failed meanwhile; it stays FAILED and the file is not published
+     */
+    boolean done(Path file, long bytes) {
+        if (!status.compareAndSet(Status.RUNNING, Status.DONE)) return false;
+        this.file = file;
+        this.bytes = bytes;
+        this.finishedAt = LocalDateTime.now();
+        return true;
+    }
+
+    /**
+     * @return false if the job had already finished or failed; the first error is kept
+     */
+    boolean failed(String error) {
+        Status current;
+        do {
+            current = status.get();
+            if (current == Status.DONE || current == Status.FAILED) return false;
+        } while (!status.compareAndSet(current, Status.FAILED));
+        this.error = error;
+        this.finishedAt = LocalDateTime.now();
+        return true;
+    }
+}
@@ -0,0 +1,394 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bulk CSV/GPX exports of tracker_data, run off the request threads.
+ *
+ * Each IMEI is one partition: a worker streams its rows (forward-only, fetchSize rows
+ * at a time) into its own gzip file. When the last partition finishes, a header member,
+ * the parts and a footer member are concatenated with FileChannel.transferTo - gzip
+ * members concatenate into a valid gzip file, so nothing is decompressed or copied
+ * through the heap. The pool and its queue are bounded; a job that does not fit is refused.
+ */
+@Service
+public class ExportService {
+
+    private static final String QUERY =
+            "SELECT imei, gps_time, latitude, longitude, speed_kph, course, acc, battery_mv, mileage_m " +
+            "FROM tracker_data WHERE imei = ? AND gps_time BETWEEN ? AND ? ORDER BY gps_time";
+
+    private static final String CSV_HEADER = "imei,gps_time,latitude,longitude,speed_kph,course,acc,battery_mv,mileage_m\n";
+    private static final String GPX_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<gpx version=\"1.1\" creator=\"zedcarhiretracker\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n";
+    private static final String GPX_FOOTER = "</gpx>\n";
+
+    private final JdbcTemplate jdbc;
+
+    @Value("${tracking.export.dir:exports}")
+    private String dir;
+
+    @Value("${tracking.export.workers:4}")
+    private int workers;
+
+    // Pending partitions (IMEIs) across all jobs
+    @Value("${tracking.export.queueSize:1000}")
+    private int queueSize;
+
+    @Value("${tracking.export.maxImeis:200}")
+    private int maxImeis;
+
+    // Integer.MIN_VALUE makes MySQL Connector/J stream row by row
+    @Value("${tracking.export.fetchSize:-2147483648}")
+    private int fetchSize;
+
+    @Value("${tracking.export.retentionHours:24}")
+    private int retentionHours;
+
+    // gps_time is stored in the server zone; GPX wants UTC
+    @Value("${spring.jackson.time-zone:Africa/Lusaka}")
+    private String timeZone;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor pool;
+    private Path root;
+    private ZoneId zone;
+
+    public ExportService(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        root = Paths.get(dir).toAbsolutePath();
+        Files.createDirectories(root);
+        zone = ZoneId.of(timeZone);
+
+        AtomicInteger n = new AtomicInteger();
+        pool = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread t = new Thread(r, "export-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        System.out.println("[EXPORT] " + workers + " workers, writing to " + root);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Queues one partition per distinct IMEI.
+     * @throws IllegalArgumentException for a bad request
+     * @throws RejectedExecutionException when the queue cannot take the whole job
+     */
+    public ExportJob submit(List<String> requested, LocalDateTime from, LocalDateTime to, String format, String tenant) {
+        String fmt = format == null ? "csv" : format.toLowerCase();
+        if (!fmt.equals("csv") && !fmt.equals("gpx")) {
+            throw new IllegalArgumentException("format must be csv or gpx");
+        }
+        if (requested == null || requested.isEmpty()) {
+            throw new IllegalArgumentException("imeis is required");
+        }
+        // A repeated IMEI would be exported twice and its extra part counted towards completion
+        List<String> imeis = List.copyOf(new LinkedHashSet<>(requested));
+        if (imeis.size() > maxImeis) {
+            throw new IllegalArgumentException("at most " + maxImeis + " IMEIs per export");
+        }
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("from and to are required, from <= to");
+        }
+
+        ExportJob job = new ExportJob(UUID.randomUUID().toString().replace("-", ""), fmt,
+                imeis, from, to, tenant);
+
+        synchronized (pool) {
+            if (pool.getQueue().remainingCapacity() < imeis.size()) {
+                throw new RejectedExecutionException("export queue is full");
+            }
+            try {
+                Files.createDirectories(partsDir(job));
+            } catch (IOException e) {
+                throw new IllegalStateException("cannot create export directory: " + e.getMessage());
+            }
+            jobs.put(job.getId(), job);
+            for (int i = 0; i < imeis.size(); i++) {
+                int part = i;
+                pool.execute(() -> runPart(job, part));
+            }
+        }
+
+        System.out.println("[EXPORT] Job " + job.getId() + " queued: " + imeis.size() + " IMEIs, " +
+                from + " → " + to + ", " + fmt);
+        return job;
+    }
+
+    /**
+     * @return the job, or null if it does not exist or belongs to another tenant
+     */
+    public ExportJob get(String id, String tenant) {
+        ExportJob job = jobs.get(id);
+        return job != null && job.visibleTo(tenant) ? job : null;
+    }
+
+    public Collection<ExportJob> list(String tenant) {
+        List<ExportJob> out = new ArrayList<>();
+        for (ExportJob job : jobs.values()) {
+            if (job.visibleTo(tenant)) out.add(job);
+        }
+        out.sort(Comparator.comparing(ExportJob::getCreatedAt).reversed());
+        return out;
+    }
+
+    private void runPart(ExportJob job, int part) {
+        if (job.getStatus() == ExportJob.Status.FAILED) return;
+        job.running();
+
+        String imei = job.getImeis().get(part);
+        try {
+            writePart(job, imei, partFile(job, part));
+        } catch (Exception e) {
+            // Deletes this part too, so nothing is left behind however it failed
+            System.err.println("[EXPORT] Job " + job.getId() + " failed on " + imei + ": " + e.getMessage());
+            job.failed("export of " + imei + " failed: " + e.getMessage());
+            deleteQuietly(partsDir(job));
+            return;
+        }
+        if (job.getStatus() == ExportJob.Status.FAILED) {
+            // Another part failed while this one was being written
+            deleteQuietly(partsDir(job));
+            return;
+        }
+
+        if (job.partDone() && job.getStatus() != ExportJob.Status.FAILED) {
+            try {
+                assemble(job);
+            } catch (Exception e) {
+                System.err.println("[EXPORT] Job " + job.getId() + " could not be assembled: " + e.getMessage());
+                job.failed("assembly failed: " + e.getMessage());
+            } finally {
+                deleteQuietly(partsDir(job));
+            }
+        }
+    }
+
+    private void writePart(ExportJob job, String imei, Path file) throws IOException {
+        boolean gpx = job.getFormat().equals("gpx");
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024), StandardCharsets.UTF_8), 64 * 1024)) {
+
+            if (gpx) {
+                w.write("<trk><name>" + xml(imei) + "</name><trkseg>\n");
+            }
+
+            long[] count = {0};
+            jdbc.query(con -> {
+                PreparedStatement ps = con.prepareStatement(QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                ps.setString(1, imei);
+                ps.setTimestamp(2, Timestamp.valueOf(job.getFrom()));
+                ps.setTimestamp(3, Timestamp.valueOf(job.getTo()));
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    if (gpx) writeGpx(w, rs);
+                    else writeCsv(w, rs);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+                if (++count[0] % 10_000 == 0) {
+                    job.addRows(10_000);
+                }
+            });
+            job.addRows(count[0] % 10_000);
+
+            if (gpx) {
+                w.write("</trkseg></trk>\n");
+            }
+        }
+    }
+
+    private static void writeCsv(Writer w, ResultSet rs) throws java.sql.SQLException, IOException {
+        w.write(csv(rs.getString(1)));
+        w.write(',');
+        w.write(rs.getTimestamp(2).toLocalDateTime().toString());
+        w.write(',');
+        w.write(Double.toString(rs.getDouble(3)));
+        w.write(',');
+        w.write(Double.toString(rs.getDouble(4)));
+        w.write(',');
+        w.write(Double.toString(rs.getDouble(5)));
+        for (int c = 6; c <= 9; c++) {
+            w.write(',');
+            int v = rs.getInt(c);
+            if (!rs.wasNull()) w.write(Integer.toString(v));
+        }
+        w.write('\n');
+    }
+
+    // RFC 4180: quote a field holding a separator, quote or line break, doubling inner quotes
+    static String csv(String value) {
+        if (value == null) return "";
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+
+    static String xml(String value) {
+        if (value == null) return "";
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '&' -> sb.append("&amp;");
+                case '"' -> sb.append("&quot;");
+                case '\'' -> sb.append("&apos;");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private void writeGpx(Writer w, ResultSet rs) throws java.sql.SQLException, IOException {
+        w.write("<trkpt lat=\"");
+        w.write(Double.toString(rs.getDouble(3)));
+        w.write("\" lon=\"");
+        w.write(Double.toString(rs.getDouble(4)));
+        w.write("\"><time>");
+        w.write(DateTimeFormatter.ISO_INSTANT.format(rs.getTimestamp(2).toLocalDateTime().atZone(zone)));
+        w.write("</time></trkpt>\n");
+    }
+
+    private void assemble(ExportJob job) throws IOException {
+        Path parts = partsDir(job);
+        Path header = parts.resolve("header.gz");
+        Path footer = parts.resolve("footer.gz");
+        boolean gpx = job.getFormat().equals("gpx");
+        gzip(header, gpx ? GPX_HEADER : CSV_HEADER);
+        gzip(footer, gpx ? GPX_FOOTER : "");
+
+        List<Path> members = new ArrayList<>();
+        members.add(header);
+        for (int i = 0; i < job.getPartsTotal(); i++) {
+            members.add(partFile(job, i));
+        }
+        members.add(footer);
+
+        Path tmp = root.resolve(job.getFileName() + ".tmp");
+        Path file = root.resolve(job.getFileName());
+        try {
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Path member : members) {
+                    try (FileChannel in = FileChannel.open(member, StandardOpenOption.READ)) {
+                        long size = in.size();
+                        long pos = 0;
+                        while (pos < size) {
+                            pos += in.transferTo(pos, size - pos, out);
+                        }
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(tmp);
+            throw e;
+        }
+        if (!job.done(file, Files.size(file))) {
+            // Failed while the file was being assembled - do not leave it behind
+            deleteQuietly(file);
+            return;
+        }
+        System.out.println("[EXPORT] Job " + job.getId() + " done: " + job.getRows() + " rows, " + job.getBytes() + " bytes");
+    }
+
+    private static void gzip(Path file, String text) throws IOException {
+        try (GZIPOutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Removes jobs (and their files) older than the retention period
+     */
+    @Scheduled(fixedDelay = 3_600_000)
+    public void purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours);
+        for (ExportJob job : jobs.values()) {
+            if (job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff)) {
+                jobs.remove(job.getId());
+                if (job.getFile() != null) deleteQuietly(job.getFile());
+                System.out.println("[EXPORT] Purged job " + job.getId());
+            }
+        }
+    }
+
+    private Path partsDir(ExportJob job) {
+        return root.resolve(job.getId());
+    }
+
+    private Path partFile(ExportJob job, int part) {
+        return partsDir(job).resolve(String.format("part-%05d.gz", part));
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (!Files.exists(path)) return;
+        try (Stream<Path> walk = Files.walk(path)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException ignored) {
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("[EXPORT] Could not delete " + path + ": " + e.getMessage());
+        }
+    }
+}
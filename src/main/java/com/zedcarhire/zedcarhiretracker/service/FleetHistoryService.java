@@ -0,0 +1,154 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zedcarhire.zedcarhiretracker.model.TrackPoint;
+import com.zedcarhire.zedcarhiretracker.repo.TrackerDataRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * History of many vehicles over the same window, for convoy and fleet playback.
+ *
+ * Vehicles whose window is still in RecentTracks are answered from memory; the rest are
+ * fetched batchSize IMEIs per query with imei IN (...) AND gps_time BETWEEN, ordered by
+ * (imei, gps_time), which MySQL serves as one range scan per batch on idx_imei_time with
+ * no sort. Batches run concurrently, and each vehicle's track is serialised on its own
+ * task. When the pool is busy the request thread does the work itself.
+ *
+ * Every track is held in memory until the response is written, so a request is refused
+ * once it passes maxRows points; each batch query fetches at most one row past the limit.
+ */
+@Service
+public class FleetHistoryService {
+
+    @Value("${tracking.fleetHistory.batchSize:25}")
+    private int batchSize;
+
+    @Value("${tracking.fleetHistory.workers:4}")
+    private int workers;
+
+    @Value("${tracking.fleetHistory.maxRows:500000}")
+    private int maxRows;
+
+    private final TrackerDataRepository repo;
+    private final RecentTracks recent;
+    private final ObjectMapper json;
+
+    private ThreadPoolExecutor pool;
+
+    public FleetHistoryService(TrackerDataRepository repo, RecentTracks recent, ObjectMapper json) {
+        this.repo = repo;
+        this.recent = recent;
+        this.json = json;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger n = new AtomicInteger();
+        pool = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(workers * 16), r -> {
+                    Thread t = new Thread(r, "fleet-history-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Points of each IMEI in [start, end], ascending, keyed in the order given; IMEIs
+     * without data map to an empty list
+     * @throws IllegalArgumentException when the tracks hold more than maxRows points
+     */
+    public Map<String, List<TrackPoint>> load(List<String> imeis, LocalDateTime start, LocalDateTime end) {
+        Map<String, List<TrackPoint>> out = new LinkedHashMap<>();
+        List<String> fromDb = new ArrayList<>();
+        long total = 0;
+        for (String imei : imeis) {
+            if (out.containsKey(imei)) continue;
+            List<TrackPoint> inMemory = recent.range(imei, start, end);
+            out.put(imei, inMemory != null ? inMemory : List.of());
+            if (inMemory == null) fromDb.add(imei);
+            else total += inMemory.size();
+        }
+        if (total > maxRows) throw tooManyRows();
+
+        long remaining = maxRows - total;
+        List<CompletableFuture<List<TrackPoint>>> batches = new ArrayList<>();
+        for (int i = 0; i < fromDb.size(); i += batchSize) {
+            List<String> batch = fromDb.subList(i, Math.min(fromDb.size(), i + batchSize));
+            PageRequest limit = PageRequest.of(0, (int) Math.min(Integer.MAX_VALUE, remaining + 1));
+            batches.add(CompletableFuture.supplyAsync(() -> repo.fleetHistoryPoints(batch, start, end, limit), pool));
+        }
+
+        for (int b = 0; b < batches.size(); b++) {
+            // Rows arrive grouped by IMEI, so each group is one contiguous run
+            List<TrackPoint> rows = batches.get(b).join();
+            total += rows.size();
+            if (total > maxRows) {
+                for (int rest = b + 1; rest < batches.size(); rest++) batches.get(rest).cancel(false);
+                throw tooManyRows();
+            }
+            int from = 0;
+            for (int i = 1; i <= rows.size(); i++) {
+                if (i == rows.size() || !rows.get(i).imei().equals(rows.get(from).imei())) {
+                    out.put(rows.get(from).imei(), rows.subList(from, i));
+                    from = i;
+                }
+            }
+        }
+        return out;
+    }
+
+    private IllegalArgumentException tooManyRows() {
+        return new IllegalArgumentException("more than " + maxRows + " points, request fewer IMEIs or a shorter window");
+    }
+
+    /**
+     * Serialises view(imei, points) of every vehicle on the pool and joins the results into
+     * one JSON array, in the map's order
+     */
+    public byte[] toJsonArray(Map<String, List<TrackPoint>> tracks, BiFunction<String, List<TrackPoint>, Object> view) {
+        List<CompletableFuture<byte[]>> parts = new ArrayList<>(tracks.size());
+        for (Map.Entry<String, List<TrackPoint>> e : tracks.entrySet()) {
+            parts.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return json.writeValueAsBytes(view.apply(e.getKey(), e.getValue()));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }, pool));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('[');
+        for (int i = 0; i < parts.size(); i++) {
+            if (i > 0) out.write(',');
+            byte[] part = parts.get(i).join();
+            out.write(part, 0, part.length);
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+}
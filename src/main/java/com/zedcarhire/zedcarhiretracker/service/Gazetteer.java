@@ -0,0 +1,141 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import com.zedcarhire.zedcarhiretracker.model.TrackPoint;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline "near Kabwe, 12 km N" labels from the bundled place list (gazetteer/places.csv).
+ *
+ * Lookups go through a PlaceIndex k-d tree; labels are cached per coordinate quantised
+ * to 0.01 degree (about 1 km), so a parked car or a replayed route is labelled once.
+ */
+@Component
+public class Gazetteer {
+
+    private static final String[] COMPASS = {"N", "NE", "E", "SE", "S", "SW", "W", "NW"};
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    @Value("${tracking.places.file:gazetteer/places.csv}")
+    private String file;
+
+    // Points further than this from any place get no label
+    @Value("${tracking.places.maxKm:150}")
+    private double maxKm;
+
+    @Value("${tracking.places.cacheSize:20000}")
+    private int cacheSize;
+
+    private String[] names = new String[0];
+    private double[] latitudes = new double[0];
+    private double[] longitudes = new double[0];
+    private PlaceIndex index = new PlaceIndex(latitudes, longitudes);
+
+    private Map<Long, String> cache;
+
+    @PostConstruct
+    public void load() {
+        cache = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+
+        List<String> n = new ArrayList<>();
+        List<double[]> coords = new ArrayList<>();
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(file)) {
+            if (in == null) {
+                System.err.println("[PLACES] Gazetteer not found: " + file);
+                return;
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split(",");
+                if (parts.length < 4) continue;
+                n.add(parts[0].trim());
+                coords.add(new double[]{Double.parseDouble(parts[2].trim()), Double.parseDouble(parts[3].trim())});
+            }
+        } catch (Exception e) {
+            System.err.println("[PLACES] Could not load gazetteer: " + e.getMessage());
+            return;
+        }
+
+        names = n.toArray(new String[0]);
+        latitudes = new double[names.length];
+        longitudes = new double[names.length];
+        for (int i = 0; i < names.length; i++) {
+            latitudes[i] = coords.get(i)[0];
+            longitudes[i] = coords.get(i)[1];
+        }
+        index = new PlaceIndex(latitudes, longitudes);
+        System.out.println("[PLACES] Loaded " + names.length + " places");
+    }
+
+    /**
+     * @return e.g. "near Kabwe, 12 km N", "Kabwe" when within 2 km, or null if nothing is close
+     */
+    public String label(double lat, double lng) {
+        long qLat = Math.round(lat * 100);
+        long qLng = Math.round(lng * 100);
+        long key = (qLat << 32) | (qLng & 0xFFFFFFFFL);
+
+        synchronized (cache) {
+            if (cache.containsKey(key)) return cache.get(key);
+        }
+        String label = compute(qLat / 100.0, qLng / 100.0);
+        synchronized (cache) {
+            cache.put(key, label);
+        }
+        return label;
+    }
+
+    public List<TrackPoint> labelAll(List<TrackPoint> points) {
+        List<TrackPoint> out = new ArrayList<>(points.size());
+        for (TrackPoint p : points) {
+            out.add(p.withPlace(label(p.latitude(), p.longitude())));
+        }
+        return out;
+    }
+
+    private String compute(double lat, double lng) {
+        int i = index.nearest(lat, lng);
+        if (i < 0) return null;
+
+        double km = distanceKm(latitudes[i], longitudes[i], lat, lng);
+        if (km > maxKm) return null;
+        if (km < 2) return names[i];
+        return "near " + names[i] + ", " + Math.round(km) + " km " + compass(latitudes[i], longitudes[i], lat, lng);
+    }
+
+    private static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // Direction of the point as seen from the place
+    private static String compass(double fromLat, double fromLng, double toLat, double toLng) {
+        double phi1 = Math.toRadians(fromLat), phi2 = Math.toRadians(toLat);
+        double dLng = Math.toRadians(toLng - fromLng);
+        double y = Math.sin(dLng) * Math.cos(phi2);
+        double x = Math.cos(phi1) * Math.sin(phi2) - Math.sin(phi1) * Math.cos(phi2) * Math.cos(dLng);
+        double bearing = (Math.toDegrees(Math.atan2(y, x)) + 360) % 360;
+        return COMPASS[(int) Math.round(bearing / 45) % 8];
+    }
+}
@@ -0,0 +1,171 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache for history queries over closed ranges.
+ *
+ * A range is "closed" once its end is more than tracking.cache.settleMinutes in the past -
+ * from then on its rows rarely change, so the result can be served from memory and
+ * revalidated by browsers with an ETag. Ranges reaching into the present are never cached.
+ * A late fix (a device's buffer upload, a push backfill) evicts the cached ranges of its
+ * IMEI that cover it, so the next request reloads and gets a new ETag.
+ * The cache is bounded by the total number of rows held, not by entry count.
+ */
+@Component
+public class HistoryCache {
+
+    @Value("${tracking.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tracking.cache.maxRows:500000}")
+    private long maxRows;
+
+    @Value("${tracking.cache.settleMinutes:15}")
+    private long settleMinutes;
+
+    private record Key(String kind, String imei, LocalDateTime start, LocalDateTime end) {
+    }
+
+    public static class Entry<T> {
+        private final List<T> rows;
+        private final String etag;
+        private final long lastModified;
+
+        Entry(List<T> rows, String etag, long lastModified) {
+            this.rows = rows;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public List<T> getRows() {
+            return rows;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+
+    // access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Entry<?>> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Set<Key>> keysByImei = new HashMap<>();
+    private long cachedRows;
+    // Bumped by every late fix; a load that overlapped one is not cached
+    private long lateFixes;
+
+    public boolean isCacheable(String imei, LocalDateTime start, LocalDateTime end) {
+        return enabled && imei != null && start != null && end != null
+                && end.isBefore(LocalDateTime.now().minusMinutes(settleMinutes));
+    }
+
+    /**
+     * Returns the cached result for the range, loading (outside the lock) on a miss.
+     * Callers must check {@link #isCacheable} first.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Entry<T> get(String kind, String imei, LocalDateTime start, LocalDateTime end, Supplier<List<T>> loader) {
+        Key key = new Key(kind, imei, start, end);
+        long late;
+        synchronized (this) {
+            Entry<?> hit = entries.get(key);
+            if (hit != null) {
+                return (Entry<T>) hit;
+            }
+            late = lateFixes;
+        }
+
+        List<T> rows = List.copyOf(loader.get());
+        // Last-Modified is when the rows were read, not the end of the range
+        Entry<T> entry = new Entry<>(rows, etag(key, rows.size()), System.currentTimeMillis());
+
+        if (rows.size() <= maxRows) {
+            synchronized (this) {
+                if (late != lateFixes) return entry;
+                Entry<?> previous = entries.put(key, entry);
+                if (previous != null) cachedRows -= previous.rows.size();
+                cachedRows += rows.size();
+                keysByImei.computeIfAbsent(imei, k -> new HashSet<>()).add(key);
+                evict();
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Called for every stored fix: drops the cached ranges of the IMEI that contain its time
+     */
+    public void invalidate(String imei, LocalDateTime gpsTime) {
+        if (!enabled || imei == null || gpsTime == null) return;
+        // Every cached range ended before now - settleMinutes; a fix after that is in none of them
+        if (!gpsTime.isBefore(LocalDateTime.now().minusMinutes(settleMinutes))) return;
+
+        synchronized (this) {
+            lateFixes++;
+            Set<Key> keys = keysByImei.get(imei);
+            if (keys == null) return;
+            for (Iterator<Key> it = keys.iterator(); it.hasNext(); ) {
+                Key key = it.next();
+                if (gpsTime.isBefore(key.start()) || gpsTime.isAfter(key.end())) continue;
+                it.remove();
+                Entry<?> removed = entries.remove(key);
+                if (removed != null) cachedRows -= removed.rows.size();
+            }
+            if (keys.isEmpty()) keysByImei.remove(imei);
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry<?>>> it = entries.entrySet().iterator();
+        while (cachedRows > maxRows && it.hasNext()) {
+            Map.Entry<Key, Entry<?>> eldest = it.next();
+            cachedRows -= eldest.getValue().rows.size();
+            it.remove();
+            Set<Key> keys = keysByImei.get(eldest.getKey().imei());
+            if (keys != null && keys.remove(eldest.getKey()) && keys.isEmpty()) {
+                keysByImei.remove(eldest.getKey().imei());
+            }
+        }
+    }
+
+    /**
+     * ETag for another representation of the same cached rows (compact, labelled, ...)
+     * so browser caches never mix them up.
+     */
+    public static String etagVariant(String etag, String variant) {
+        return etag.substring(0, etag.length() - 1) + "-" + variant + "\"";
+    }
+
+    /**
+     * Stable across evictions: a closed range only changes if late rows arrive, which evicts
+     * the entry and changes the count.
+     */
+    private static String etag(Key key, int size) {
+        try {
+            String s = key.kind() + "|" + key.imei() + "|" + key.start() + "|" + key.end() + "|" + size;
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder("\"");
+            for (int i = 0; i < 12; i++) sb.append(String.format("%02x", d[i]));
+            return sb.append('"').toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
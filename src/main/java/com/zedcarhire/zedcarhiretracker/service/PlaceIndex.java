@@ -0,0 +1,111 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+/**
+ * Static 3-d tree over places on the unit sphere, nearest-neighbour lookups only.
+ *
+ * Points are stored as flat primitive arrays in tree order: for any index range the
+ * median element is the node and the halves on either side are its subtrees, so no
+ * node objects or child pointers exist. Euclidean (chord) distance between unit vectors
+ * orders points exactly like great-circle distance, so the nearest match is exact.
+ */
+public class PlaceIndex {
+
+    private final double[] xyz;   // 3 per point, tree order
+    private final int[] ids;      // original index of each point, tree order
+    private final int size;
+
+    public PlaceIndex(double[] latitudes, double[] longitudes) {
+        size = latitudes.length;
+        xyz = new double[size * 3];
+        ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            toUnit(latitudes[i], longitudes[i], xyz, i * 3);
+            ids[i] = i;
+        }
+        build(0, size, 0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void build(int lo, int hi, int axis) {
+        if (hi - lo <= 1) return;
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, axis);
+        int next = (axis + 1) % 3;
+        build(lo, mid, next);
+        build(mid + 1, hi, next);
+    }
+
+    // Quickselect: afterwards position k holds the median along axis, smaller ones before it
+    private void select(int lo, int hi, int k, int axis) {
+        while (hi > lo) {
+            double pivot = xyz[((lo + hi) >>> 1) * 3 + axis];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (xyz[i * 3 + axis] < pivot) i++;
+                while (xyz[j * 3 + axis] > pivot) j--;
+                if (i <= j) swap(i++, j--);
+            }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+        }
+    }
+
+    private void swap(int a, int b) {
+        for (int d = 0; d < 3; d++) {
+            double t = xyz[a * 3 + d];
+            xyz[a * 3 + d] = xyz[b * 3 + d];
+            xyz[b * 3 + d] = t;
+        }
+        int t = ids[a];
+        ids[a] = ids[b];
+        ids[b] = t;
+    }
+
+    /**
+     * @return original index of the nearest place, or -1 if the index is empty
+     */
+    public int nearest(double lat, double lng) {
+        if (size == 0) return -1;
+        double[] q = new double[3];
+        toUnit(lat, lng, q, 0);
+        double[] best = {Double.MAX_VALUE, -1};
+        search(0, size, 0, q, best);
+        return (int) best[1];
+    }
+
+    private void search(int lo, int hi, int axis, double[] q, double[] best) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        int p = mid * 3;
+
+        double dx = xyz[p] - q[0], dy = xyz[p + 1] - q[1], dz = xyz[p + 2] - q[2];
+        double d2 = dx * dx + dy * dy + dz * dz;
+        if (d2 < best[0]) {
+            best[0] = d2;
+            best[1] = ids[mid];
+        }
+
+        double diff = q[axis] - xyz[p + axis];
+        int next = (axis + 1) % 3;
+        if (diff < 0) {
+            search(lo, mid, next, q, best);
+            if (diff * diff < best[0]) search(mid + 1, hi, next, q, best);
+        } else {
+            search(mid + 1, hi, next, q, best);
+            if (diff * diff < best[0]) search(lo, mid, next, q, best);
+        }
+    }
+
+    private static void toUnit(double lat, double lng, double[] out, int off) {
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lng);
+        double cos = Math.cos(phi);
+        out[off] = cos * Math.cos(lambda);
+        out[off + 1] = cos * Math.sin(lambda);
+        out[off + 2] = Math.sin(phi);
+    }
+}
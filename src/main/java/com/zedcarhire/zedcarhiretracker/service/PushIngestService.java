@@ -0,0 +1,169 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zedcarhire.zedcarhiretracker.model.TrackerData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk vendor push: a stream of TrackerData objects, either a JSON array or NDJSON, read
+ * one record at a time so memory stays bounded by the chunk size, not the request size.
+ *
+ * Each record is validated on its own; a malformed or invalid record is rejected with its
+ * index and the rest carry on. Valid records are written chunkSize at a time with one
+ * multi-row INSERT per chunk (see TrackerService.saveBatch).
+ */
+@Service
+public class PushIngestService {
+
+    @Value("${tracking.push.chunkSize:500}")
+    private int chunkSize;
+
+    @Value("${tracking.push.maxRecords:50000}")
+    private int maxRecords;
+
+    // Rejections listed individually in the summary; the count is always exact
+    @Value("${tracking.push.maxErrors:1000}")
+    private int maxErrors;
+
+    // Fixes further ahead of the server clock than this are rejected
+    @Value("${tracking.push.maxFutureMinutes:10}")
+    private long maxFutureMinutes;
+
+    private final TrackerService service;
+    private final DeviceRegistry registry;
+    private final ObjectMapper json;
+
+    public PushIngestService(TrackerService service, DeviceRegistry registry, ObjectMapper json) {
+        this.service = service;
+        this.registry = registry;
+        this.json = json;
+    }
+
+    public record Rejection(int index, String imei, String error) {
+    }
+
+    public record Summary(boolean ok, int received, int accepted, int rejected, List<Rejection> errors,
+                          boolean errorsTruncated, String aborted) {
+    }
+
+    private final class Run {
+        final String tenant;
+        final List<TrackerData> chunk = new ArrayList<>(chunkSize);
+        final List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+        final List<Rejection> errors = new ArrayList<>();
+        int received;
+        int accepted;
+        int rejected;
+
+        Run(String tenant) {
+            this.tenant = tenant;
+        }
+
+        void reject(int index, String imei, String error) {
+            rejected++;
+            if (errors.size() < maxErrors) errors.add(new Rejection(index, imei, error));
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) return;
+            try {
+                service.saveBatch(chunk);
+                accepted += chunk.size();
+            } catch (Exception e) {
+                System.err.println("[PUSH] Chunk of " + chunk.size() + " failed: " + e.getMessage());
+                for (int i = 0; i < chunk.size(); i++) {
+                    reject(chunkIndexes.get(i), chunk.get(i).getImei(), "database: insert failed");
+                }
+            }
+            chunk.clear();
+            chunkIndexes.clear();
+        }
+    }
+
+    /**
+     * @param tenant caller's tenant; records for devices outside it are rejected
+     */
+    public Summary ingest(InputStream body, String tenant) throws IOException {
+        Run run = new Run(tenant);
+        String aborted = null;
+
+        try (MappingIterator<TrackerData> it = json.readerFor(TrackerData.class).readValues(body)) {
+            while (true) {
+                int index = run.received;
+                TrackerData td;
+                try {
+                    if (!it.hasNextValue()) break;
+                    if (run.received >= maxRecords) {
+                        aborted = "more than " + maxRecords + " records; the rest were not read";
+                        break;
+                    }
+                    run.received++;
+                    td = it.nextValue();
+                } catch (JsonMappingException e) {
+                    if (e.getCause() instanceof JsonParseException) {
+                        // Broken JSON inside a field value, wrapped by the bean deserializer
+                        aborted = "malformed JSON after record " + index;
+                        break;
+                    }
+                    // Wrong field type etc.; the iterator skips to the next record
+                    run.reject(index, null, "invalid record: " + e.getOriginalMessage());
+                    continue;
+                } catch (IOException e) {
+                    // Broken JSON - no way to find the next record
+                    aborted = "malformed JSON after record " + index;
+                    break;
+                }
+
+                String error = validate(td, tenant);
+                if (error != null) {
+                    run.reject(index, td != null ? td.getImei() : null, error);
+                    continue;
+                }
+                run.chunk.add(td);
+                run.chunkIndexes.add(index);
+                if (run.chunk.size() >= chunkSize) run.flush();
+            }
+        } finally {
+            run.flush();
+        }
+
+        System.out.println("[PUSH] Batch: " + run.received + " received, " + run.accepted + " accepted, " +
+                run.rejected + " rejected" + (aborted != null ? " (" + aborted + ")" : ""));
+        return new Summary(aborted == null && run.rejected == 0, run.received, run.accepted, run.rejected,
+                run.errors, run.errors.size() < run.rejected, aborted);
+    }
+
+    /**
+     * Fills in a missing gpsTime; returns why the record is unacceptable, or null
+     */
+    private String validate(TrackerData td, String tenant) {
+        if (td == null) return "empty record";
+        String imei = td.getImei();
+        if (imei == null || imei.isBlank() || imei.length() > 32) return "imei missing or too long";
+        if (!registry.accepts(imei) || !registry.canSee(tenant, imei)) return "unknown_device";
+
+        double lat = td.getLatitude();
+        double lng = td.getLongitude();
+        if (!(lat >= -90 && lat <= 90) || !(lng >= -180 && lng <= 180)) return "coordinates out of range";
+        if (lat == 0 && lng == 0) return "no position";
+        if (!(td.getSpeedKph() >= 0 && td.getSpeedKph() <= 500)) return "speed out of range";
+        if (td.getCourse() != null && (td.getCourse() < 0 || td.getCourse() > 360)) return "course out of range";
+
+        LocalDateTime now = LocalDateTime.now();
+        if (td.getGpsTime() == null) td.setGpsTime(now);
+        else if (td.getGpsTime().isAfter(now.plusMinutes(maxFutureMinutes))) return "gpsTime in the future";
+
+        td.setId(null);
+        return null;
+    }
+}
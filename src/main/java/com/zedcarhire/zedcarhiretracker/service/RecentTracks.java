@@ -0,0 +1,291 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import com.zedcarhire.zedcarhiretracker.model.TrackPoint;
+import com.zedcarhire.zedcarhiretracker.model.TrackerData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The most recent fixes of each vehicle, in memory, so playback of the last few hours
+ * does not touch MySQL.
+ *
+ * Every fix saved through TrackerService is appended to its IMEI's ring: parallel
+ * primitive arrays that start small, double up to perDevice, then overwrite the oldest
+ * fix. A ring knows the earliest time from which it holds every stored fix; a history
+ * request starting at or after that time is answered from the ring, anything older goes
+ * to the database. A new ring (after a restart or an eviction) only vouches for times
+ * after the latest fix already in tracker_data, since devices re-upload buffered fixes
+ * and vendors backfill. Total capacity across the fleet is capped at maxPoints by
+ * dropping the rings of the least recently used vehicles.
+ */
+@Service
+public class RecentTracks {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final short NO_COURSE = Short.MIN_VALUE;
+    private static final byte NO_ACC = -1;
+    private static final int NO_VALUE = Integer.MIN_VALUE;
+
+    // Uses idx_imei_time
+    private static final String LATEST_STORED = "SELECT MAX(gps_time) FROM tracker_data WHERE imei = ?";
+
+    @Value("${tracking.recent.enabled:true}")
+    private boolean enabled;
+
+    // Fixes kept per vehicle
+    @Value("${tracking.recent.perDevice:8192}")
+    private int perDevice;
+
+    // Fixes kept across the fleet (~45 bytes each)
+    @Value("${tracking.recent.maxPoints:1000000}")
+    private long maxPoints;
+
+    private final JdbcTemplate jdbc;
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+    private final AtomicLong allocated = new AtomicLong();
+
+    public RecentTracks(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Ring of fixes in time order; guarded by its own monitor
+     */
+    private final class Ring {
+        long[] time;   // gps_time as epoch millis of the local date-time
+        double[] lat;
+        double[] lng;
+        double[] speed;
+        short[] course;
+        byte[] acc;
+        int[] battery;
+        int[] mileage;
+
+        int head;   // physical index of the oldest fix
+        int size;
+        long coveredFrom = Long.MAX_VALUE;  // every stored fix at or after this is in the ring
+        boolean seeded;     // coveredFrom set from the database
+        boolean evicted;
+        volatile long lastUsed = System.nanoTime();
+
+        Ring(int capacity) {
+            time = new long[capacity];
+            lat = new double[capacity];
+            lng = new double[capacity];
+            speed = new double[capacity];
+            course = new short[capacity];
+            acc = new byte[capacity];
+            battery = new int[capacity];
+            mileage = new int[capacity];
+            allocated.addAndGet(capacity);
+        }
+
+        int capacity() {
+            return time.length;
+        }
+
+        int slot(int i) {
+            int p = head + i;
+            return p < time.length ? p : p - time.length;
+        }
+
+        void add(long t, TrackerData td) {
+            if (t < coveredFrom) return;  // older than the window - only in the database
+
+            if (size == capacity()) {
+                if (capacity() < perDevice) {
+                    grow(Math.min(perDevice, capacity() * 2));
+                } else {
+                    // Overwrite the oldest; the ring now only vouches for later times
+                    coveredFrom = time[head] + 1;
+                    head = slot(1);
+                    size--;
+                    if (t < coveredFrom) return;
+                }
+            }
+
+            // Usually appends; a late fix is shifted into place
+            int i = size;
+            while (i > 0 && time[slot(i - 1)] > t) {
+                copy(slot(i - 1), slot(i));
+                i--;
+            }
+            int p = slot(i);
+            time[p] = t;
+            lat[p] = td.getLatitude();
+            lng[p] = td.getLongitude();
+            speed[p] = td.getSpeedKph();
+            course[p] = td.getCourse() != null ? td.getCourse().shortValue() : NO_COURSE;
+            acc[p] = td.getAcc() != null ? td.getAcc().byteValue() : NO_ACC;
+            battery[p] = td.getBatteryMv() != null ? td.getBatteryMv() : NO_VALUE;
+            mileage[p] = td.getMileageM() != null ? td.getMileageM() : NO_VALUE;
+            size++;
+        }
+
+        private void copy(int from, int to) {
+            time[to] = time[from];
+            lat[to] = lat[from];
+            lng[to] = lng[from];
+            speed[to] = speed[from];
+            course[to] = course[from];
+            acc[to] = acc[from];
+            battery[to] = battery[from];
+            mileage[to] = mileage[from];
+        }
+
+        private void grow(int capacity) {
+            long[] t = new long[capacity];
+            double[] la = new double[capacity];
+            double[] ln = new double[capacity];
+            double[] sp = new double[capacity];
+            short[] co = new short[capacity];
+            byte[] ac = new byte[capacity];
+            int[] ba = new int[capacity];
+            int[] mi = new int[capacity];
+            for (int i = 0; i < size; i++) {
+                int p = slot(i);
+                t[i] = time[p];
+                la[i] = lat[p];
+                ln[i] = lng[p];
+                sp[i] = speed[p];
+                co[i] = course[p];
+                ac[i] = acc[p];
+                ba[i] = battery[p];
+                mi[i] = mileage[p];
+            }
+            allocated.addAndGet(capacity - time.length);
+            time = t;
+            lat = la;
+            lng = ln;
+            speed = sp;
+            course = co;
+            acc = ac;
+            battery = ba;
+            mileage = mi;
+            head = 0;
+        }
+
+        // First logical index with time >= t
+        int lowerBound(long t) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (time[slot(mid)] < t) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        List<TrackPoint> range(String imei, long start, long end) {
+            int from = lowerBound(start);
+            int to = lowerBound(end + 1);
+            List<TrackPoint> out = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) {
+                int p = slot(i);
+                out.add(new TrackPoint(imei, lat[p], lng[p], speed[p],
+                        course[p] != NO_COURSE ? (int) course[p] : null,
+                        acc[p] != NO_ACC ? (int) acc[p] : null,
+                        battery[p] != NO_VALUE ? battery[p] : null,
+                        mileage[p] != NO_VALUE ? mileage[p] : null,
+                        toLocal(time[p])));
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Called for every stored fix
+     */
+    public void record(TrackerData td) {
+        if (!enabled || td.getImei() == null || td.getGpsTime() == null) return;
+
+        Ring ring = rings.computeIfAbsent(td.getImei(), k -> new Ring(Math.min(INITIAL_CAPACITY, perDevice)));
+        synchronized (ring) {
+            if (ring.evicted) return;  // lost a race with evict(); the next fix starts a new ring
+            if (!ring.seeded) {
+                try {
+                    // The fix being recorded is already stored, so it is at or below this too
+                    LocalDateTime latest = latestStored(td.getImei());
+                    ring.coveredFrom = latest != null ? toMillis(latest) + 1 : Long.MIN_VALUE;
+                    ring.seeded = true;
+                } catch (Exception e) {
+                    System.err.println("[RECENT] Could not seed " + td.getImei() + ": " + e.getMessage());
+                    return;  // the next fix tries again; until then the ring serves nothing
+                }
+            }
+            ring.add(toMillis(td.getGpsTime()), td);
+            ring.lastUsed = System.nanoTime();
+        }
+        if (allocated.get() > maxPoints) {
+            evict();
+        }
+    }
+
+    /**
+     * Fixes of imei in [start, end] in time order, or null if the ring does not hold the
+     * whole range and the caller must query the database
+     */
+    public List<TrackPoint> range(String imei, LocalDateTime start, LocalDateTime end) {
+        if (!enabled || imei == null || start == null || end == null) return null;
+        Ring ring = rings.get(imei);
+        if (ring == null) return null;
+
+        long from = toMillis(start);
+        synchronized (ring) {
+            if (ring.evicted || !ring.seeded || from < ring.coveredFrom) return null;
+            ring.lastUsed = System.nanoTime();
+            return ring.range(imei, from, toMillis(end));
+        }
+    }
+
+    /**
+     * Latest gps_time stored for the IMEI, or null if none
+     */
+    LocalDateTime latestStored(String imei) {
+        Timestamp t = jdbc.queryForObject(LATEST_STORED, Timestamp.class, imei);
+        return t != null ? t.toLocalDateTime() : null;
+    }
+
+    /**
+     * Drops least recently used rings until the fleet is back under 90% of maxPoints
+     */
+    private synchronized void evict() {
+        if (allocated.get() <= maxPoints) return;
+
+        List<Map.Entry<String, Ring>> byAge = new ArrayList<>(rings.entrySet());
+        byAge.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+
+        long target = maxPoints / 10 * 9;
+        int dropped = 0;
+        for (Map.Entry<String, Ring> e : byAge) {
+            if (allocated.get() <= target) break;
+            if (rings.remove(e.getKey(), e.getValue())) {
+                synchronized (e.getValue()) {
+                    e.getValue().evicted = true;
+                    allocated.addAndGet(-e.getValue().capacity());
+                }
+                dropped++;
+            }
+        }
+        System.out.println("[RECENT] Evicted " + dropped + " vehicles, " + allocated.get() + " points allocated");
+    }
+
+    private static long toMillis(LocalDateTime t) {
+        return t.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toLocal(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+}
@@ -2,34 +2,96 @@ package com.zedcarhire.zedcarhiretracker.service;
 
 
 import com.zedcarhire.zedcarhiretracker.model.RawMessage;
+import com.zedcarhire.zedcarhiretracker.model.TrackPoint;
 import com.zedcarhire.zedcarhiretracker.model.TrackerData;
 import com.zedcarhire.zedcarhiretracker.repo.TrackerDataRepository;
 import com.zedcarhire.zedcarhiretracker.repo.RawMessageRepository;
+import com.zedcarhire.zedcarhiretracker.webhook.WebhookDispatcher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
 public class TrackerService {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO tracker_data (imei, latitude, longitude, speed_kph, course, acc, battery_mv, mileage_m, gps_time, raw_hex) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 10;
+
     private final TrackerDataRepository repo;
     private final RawMessageRepository rawRepo;
+    private final DensityAggregator density;
+    private final RecentTracks recent;
+    private final WebhookDispatcher webhooks;
+    private final HistoryCache historyCache;
+    private final JdbcTemplate jdbc;
 
-    public TrackerService(TrackerDataRepository repo, RawMessageRepository rawRepo) {
+    public TrackerService(TrackerDataRepository repo, RawMessageRepository rawRepo, DensityAggregator density,
+                          RecentTracks recent, WebhookDispatcher webhooks, HistoryCache historyCache, JdbcTemplate jdbc) {
         this.repo = repo;
         this.rawRepo = rawRepo;
+        this.density = density;
+        this.recent = recent;
+        this.webhooks = webhooks;
+        this.historyCache = historyCache;
+        this.jdbc = jdbc;
     }
 
     public TrackerData save(TrackerData td) {
-        return repo.save(td);
+        TrackerData saved = repo.save(td);
+        stored(saved);
+        return saved;
+    }
+
+    /**
+     * Inserts the fixes with one multi-row INSERT - a single statement, so the rows are
+     * committed or rejected together - and feeds them to the same consumers as save().
+     * Generated ids are not read back.
+     */
+    public void saveBatch(List<TrackerData> fixes) {
+        if (fixes.isEmpty()) return;
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + fixes.size() * (ROW.length() + 2))
+                .append(INSERT_PREFIX);
+        Object[] args = new Object[fixes.size() * COLUMNS];
+        int a = 0;
+        for (int i = 0; i < fixes.size(); i++) {
+            TrackerData td = fixes.get(i);
+            if (i > 0) sql.append(", ");
+            sql.append(ROW);
+            args[a++] = td.getImei();
+            args[a++] = td.getLatitude();
+            args[a++] = td.getLongitude();
+            args[a++] = td.getSpeedKph();
+            args[a++] = td.getCourse();
+            args[a++] = td.getAcc();
+            args[a++] = td.getBatteryMv();
+            args[a++] = td.getMileageM();
+            args[a++] = Timestamp.valueOf(td.getGpsTime());
+            args[a++] = td.getRawHex();
+        }
+        jdbc.update(sql.toString(), args);
+
+        for (TrackerData td : fixes) stored(td);
+    }
+
+    private void stored(TrackerData td) {
+        density.record(td);
+        recent.record(td);
+        historyCache.invalidate(td.getImei(), td.getGpsTime());
+        webhooks.onFix(td);
     }
 
-    public List<TrackerData> search(String imei, LocalDateTime from, LocalDateTime to) {
-        return repo.search(imei, from, to);
+    public List<TrackPoint> search(String imei, LocalDateTime from, LocalDateTime to) {
+        return repo.searchPoints(imei, from, to);
     }
 
-    public List<TrackerData> last(List<String> imeis) {
-        return repo.lastForImeis(imeis);
+    public List<TrackPoint> last(List<String> imeis) {
+        return repo.lastPointsForImeis(imeis);
     }
 
     public void saveRaw(String hex) {
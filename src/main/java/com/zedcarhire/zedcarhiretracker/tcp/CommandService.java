@@ -0,0 +1,134 @@
+package com.zedcarhire.zedcarhiretracker.tcp;
+
+import com.zedcarhire.zedcarhiretracker.protocol.Gt06Decoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GT06 server commands (0x80) to connected devices, e.g. fuel cut-off or a position request.
+ *
+ * Each command gets a unique server flag which the device echoes in its 0x15/0x21 reply;
+ * the TCP read loop hands replies to onReply(), which completes the caller's future by
+ * flag. The future fails with a TimeoutException if no reply arrives in time.
+ */
+@Component
+public class CommandService {
+
+    @Value("${tracker.commands.timeoutMs:15000}")
+    private long defaultTimeoutMs;
+
+    @Value("${tracker.commands.maxTimeoutMs:60000}")
+    private long maxTimeoutMs;
+
+    // Commands in flight per device
+    @Value("${tracker.commands.maxPending:4}")
+    private int maxPending;
+
+    private final AtomicInteger flags = new AtomicInteger((int) (System.currentTimeMillis() & 0xFFFFFF));
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+    private final Map<String, Integer> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong answered = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    public record Reply(String imei, String command, String reply, LocalDateTime sentAt,
+                        LocalDateTime repliedAt, long elapsedMs) {
+    }
+
+    private record Pending(String imei, String command, LocalDateTime sentAt, long startNanos,
+                           CompletableFuture<Reply> future) {
+    }
+
+    /**
+     * Sends the command if the device is connected.
+     * @throws IllegalStateException if the device is offline or has too many commands in flight
+     * @throws IllegalArgumentException if the command is not printable ASCII or too long
+     */
+    public CompletableFuture<Reply> send(String imei, String command, Long timeoutMs) {
+        if (command == null || command.isBlank() || !command.chars().allMatch(c -> c >= 0x20 && c < 0x7F)) {
+            throw new IllegalArgumentException("command must be printable ASCII");
+        }
+        DeviceConnection connection = SessionManager.connection(imei);
+        if (connection == null) {
+            throw new IllegalStateException("device " + imei + " is not connected");
+        }
+
+        int flag = flags.incrementAndGet() & 0x7FFFFFFF;
+        byte[] frame = Gt06Decoder.buildCommand(flag, command, connection.nextSerial());
+        if (!acquire(imei)) {
+            throw new IllegalStateException("device " + imei + " already has " + maxPending + " commands in flight");
+        }
+        long timeout = timeoutMs != null && timeoutMs > 0 ? Math.min(timeoutMs, maxTimeoutMs) : defaultTimeoutMs;
+
+        CompletableFuture<Reply> future = new CompletableFuture<>();
+        pending.put(flag, new Pending(imei, command, LocalDateTime.now(), System.nanoTime(), future));
+        // Every path (reply, timeout, write failure) completes the future exactly once
+        future.orTimeout(timeout, TimeUnit.MILLISECONDS).whenComplete((r, e) -> {
+            release(imei);
+            if (pending.remove(flag) != null && e != null) {
+                timedOut.incrementAndGet();
+                System.out.println("[COMMAND] No reply from " + imei + " to " + command + " within " + timeout + " ms");
+            }
+        });
+
+        try {
+            connection.send(frame);
+        } catch (IOException e) {
+            pending.remove(flag);
+            future.completeExceptionally(new IllegalStateException("could not write to " + imei + ": " + e.getMessage()));
+            return future;
+        }
+        sent.incrementAndGet();
+        System.out.println("[COMMAND] " + command + " → " + imei + " (flag " + flag + ")");
+        return future;
+    }
+
+    private boolean acquire(String imei) {
+        boolean[] acquired = new boolean[1];
+        inFlight.compute(imei, (k, n) -> {
+            int count = n == null ? 0 : n;
+            if (count >= maxPending) return n;
+            acquired[0] = true;
+            return count + 1;
+        });
+        return acquired[0];
+    }
+
+    private void release(String imei) {
+        inFlight.computeIfPresent(imei, (k, n) -> n > 1 ? n - 1 : null);
+    }
+
+    /**
+     * Called by the TCP server for every 0x15/0x21 reply
+     */
+    public void onReply(String imei, Integer flag, String reply) {
+        Pending p = flag != null ? pending.get(flag) : null;
+        if (p == null || !p.imei().equals(imei) || !pending.remove(flag, p)) {
+            System.out.println("[COMMAND] Unsolicited reply from " + imei + ": " + reply);
+            return;
+        }
+        answered.incrementAndGet();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - p.startNanos());
+        System.out.println("[COMMAND] " + imei + " replied to " + p.command() + " in " + elapsed + " ms: " + reply);
+        p.future().complete(new Reply(imei, p.command(), reply, p.sentAt(), LocalDateTime.now(), elapsed));
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "connected", SessionManager.connected(),
+                "pending", pending.size(),
+                "sent", sent.get(),
+                "answered", answered.get(),
+                "timedOut", timedOut.get()
+        );
+    }
+}
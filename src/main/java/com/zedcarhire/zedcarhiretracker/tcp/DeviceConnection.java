@@ -0,0 +1,67 @@
+package com.zedcarhire.zedcarhiretracker.tcp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write side of one device socket. ACKs from the read loop and commands from the API both
+ * go through send(): frames are queued and written by whichever thread holds the write
+ * lock, so a thread that finds another one writing just leaves its frame for it and
+ * returns - the read loop never waits behind a command write, or the other way round.
+ */
+public class DeviceConnection {
+
+    private static final int MAX_QUEUED = 64;
+
+    private final Socket socket;
+    private final OutputStream out;
+    private final BlockingQueue<byte[]> outbound = new ArrayBlockingQueue<>(MAX_QUEUED);
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicInteger serial = new AtomicInteger();
+
+    public DeviceConnection(Socket socket, OutputStream out) {
+        this.socket = socket;
+        this.out = out;
+    }
+
+    public Socket getSocket() {
+        return socket;
+    }
+
+    /**
+     * Serial number for the next server-originated frame
+     */
+    public int nextSerial() {
+        return serial.incrementAndGet() & 0xFFFF;
+    }
+
+    /**
+     * Queues the frame and writes it unless another thread is already writing (it then
+     * writes this frame too). Fails if the queue is full or the socket is closed.
+     */
+    public void send(byte[] frame) throws IOException {
+        if (socket.isClosed()) throw new IOException("connection closed");
+        if (!outbound.offer(frame)) throw new IOException("outbound queue full");
+        drain();
+    }
+
+    private void drain() throws IOException {
+        while (!outbound.isEmpty() && writeLock.tryLock()) {
+            try {
+                byte[] frame;
+                while ((frame = outbound.poll()) != null) {
+                    out.write(frame);
+                }
+                out.flush();
+            } finally {
+                writeLock.unlock();
+            }
+            // Re-check: a frame queued while we held the lock may have seen it taken and left
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.zedcarhire.zedcarhiretracker.tcp;
+
+import java.util.Arrays;
+
+/**
+ * Splits one connection's byte stream into GT06 frames.
+ *
+ * TCP does not keep write boundaries: a tracker's frame can arrive in two reads, and
+ * several frames can arrive in one. Frames are cut by their length field instead:
+ *   78 78 [LEN] ... 0D 0A     LEN + 5 bytes
+ *   79 79 [LEN 2] ... 0D 0A   LEN + 6 bytes
+ * Bytes that do not start a frame, an oversized length or a frame without its 0D 0A stop
+ * bits mark the stream as corrupt; the caller drops the connection.
+ */
+final class FrameReader {
+
+    static final int MAX_FRAME = 2048;
+
+    private byte[] buf = new byte[MAX_FRAME];
+    private int start;
+    private int end;
+    private boolean corrupt;
+
+    void feed(byte[] data, int len) {
+        if (end + len > buf.length) {
+            // Move what is left of the previous read to the front, growing for a long frame's tail
+            int pending = end - start;
+            byte[] target = pending + len > buf.length ? new byte[pending + len] : buf;
+            System.arraycopy(buf, start, target, 0, pending);
+            buf = target;
+            start = 0;
+            end = pending;
+        }
+        System.arraycopy(data, 0, buf, end, len);
+        end += len;
+    }
+
+    /**
+     * @return the next complete frame, or null if more bytes are needed or the stream is corrupt
+     */
+    byte[] next() {
+        if (corrupt) return null;
+        int available = end - start;
+        if (available < 2) return null;
+
+        int size;
+        if (buf[start] == 0x78 && buf[start + 1] == 0x78) {
+            if (available < 3) return null;
+            size = (buf[start + 2] & 0xFF) + 5;
+        } else if (buf[start] == 0x79 && buf[start + 1] == 0x79) {
+            if (available < 4) return null;
+            size = (((buf[start + 2] & 0xFF) << 8) | (buf[start + 3] & 0xFF)) + 6;
+        } else {
+            corrupt = true;
+            return null;
+        }
+
+        if (size > MAX_FRAME) {
+            corrupt = true;
+            return null;
+        }
+        if (available < size) return null;
+        if (buf[start + size - 2] != 0x0D || buf[start + size - 1] != 0x0A) {
+            corrupt = true;
+            return null;
+        }
+
+        byte[] frame = Arrays.copyOfRange(buf, start, start + size);
+        start += size;
+        if (start == end) {
+            start = 0;
+            end = 0;
+            if (buf.length > MAX_FRAME) buf = new byte[MAX_FRAME];
+        }
+        return frame;
+    }
+
+    boolean isCorrupt() {
+        return corrupt;
+    }
+
+    /**
+     * Up to n unconsumed bytes, for logging what broke the stream
+     */
+    byte[] head(int n) {
+        return Arrays.copyOfRange(buf, start, start + Math.min(n, end - start));
+    }
+}
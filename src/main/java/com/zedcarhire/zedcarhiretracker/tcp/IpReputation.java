@@ -0,0 +1,236 @@
+package com.zedcarhire.zedcarhiretracker.tcp;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, self-expiring record of misbehaving client IPs for the TCP accept path.
+ *
+ * - isBlocked() is a single map lookup, so blocked sockets are closed before any
+ *   handler thread or read buffer is allocated for them
+ * - failure counters are atomic; no get-then-put races
+ * - at most tracker.tcp.reputation.capacity IPs are tracked; when full, an IP that is
+ *   failing but not blocked is evicted (soonest to expire first) to make room, so a wide
+ *   scan cannot fill the table and switch blocking off for everyone after it
+ * - entries expire through a timing wheel advanced by a scheduled tick, so IPs that
+ *   never come back are still forgotten
+ */
+@Component
+public class IpReputation {
+
+    // Wheel entries looked at for an eviction before giving up
+    private static final int EVICT_SCAN = 64;
+
+    @Value("${tracker.tcp.reputation.capacity:65536}")
+    private int capacity;
+
+    @Value("${tracker.tcp.reputation.maxFailures:3}")
+    private int maxFailures;
+
+    @Value("${tracker.tcp.reputation.blockMinutes:60}")
+    private long blockMinutes;
+
+    // failures older than this are forgotten if the IP never reached maxFailures
+    @Value("${tracker.tcp.reputation.windowMinutes:10}")
+    private long windowMinutes;
+
+    @Value("${tracker.tcp.reputation.tickMs:30000}")
+    private long tickMs;
+
+    private static class Entry {
+        final String ip;
+        final AtomicInteger failures = new AtomicInteger();
+        volatile long blockedUntil;
+        volatile long expiresAt;
+
+        Entry(String ip) {
+            this.ip = ip;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    // Timing wheel: slot i holds entries whose expiry falls in tick i (mod slots)
+    private ConcurrentLinkedQueue<Entry>[] wheel;
+    // Written by the scheduler thread, read by acceptors in schedule()
+    private volatile long lastTick;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong untracked = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    // Replaced in tests
+    LongSupplier clock = System::currentTimeMillis;
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void init() {
+        long horizon = Math.max(blockMinutes, windowMinutes) * 60_000L;
+        int slots = (int) Math.min(4096, horizon / tickMs + 2);
+        wheel = new ConcurrentLinkedQueue[slots];
+        for (int i = 0; i < slots; i++) wheel[i] = new ConcurrentLinkedQueue<>();
+        lastTick = clock.getAsLong() / tickMs;
+    }
+
+    /**
+     * Fast path for the acceptor; counts the rejection when blocked.
+     */
+    public boolean isBlocked(String ip) {
+        Entry e = entries.get(ip);
+        if (e != null && e.blockedUntil > clock.getAsLong()) {
+            rejected.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if this failure got the IP blocked
+     */
+    public boolean recordFailure(String ip) {
+        long now = clock.getAsLong();
+        Entry e = entries.get(ip);
+        if (e == null) {
+            if (size.get() >= capacity && !evictOne(now)) {
+                untracked.incrementAndGet();
+                return false;
+            }
+            Entry created = new Entry(ip);
+            e = entries.putIfAbsent(ip, created);
+            if (e == null) {
+                e = created;
+                size.incrementAndGet();
+                e.expiresAt = now + windowMinutes * 60_000L;
+                schedule(e);
+            }
+        }
+
+        long until = e.blockedUntil;
+        if (until != 0 && until <= now) {
+            // Block expired before the tick removed the entry: start counting afresh
+            synchronized (e) {
+                if (e.blockedUntil == until) {
+                    e.failures.set(0);
+                    e.blockedUntil = 0;
+                }
+            }
+        }
+
+        int attempts = e.failures.incrementAndGet();
+        if (e.blockedUntil > now) return false;
+
+        if (attempts >= maxFailures) {
+            e.blockedUntil = now + blockMinutes * 60_000L;
+            e.expiresAt = e.blockedUntil;
+            System.out.println("[SECURITY] IP " + ip + " blocked for " + blockMinutes + " min after " + attempts + " invalid attempts");
+            return true;
+        }
+        e.expiresAt = Math.max(e.expiresAt, now + windowMinutes * 60_000L);
+        return false;
+    }
+
+    /**
+     * Successful login clears the IP's record
+     */
+    public void clear(String ip) {
+        Entry e = entries.remove(ip);
+        if (e != null) size.decrementAndGet();
+    }
+
+    /**
+     * Drops the tracked IP that expires soonest among those not blocked
+     * @return false if none was found within EVICT_SCAN entries
+     */
+    private boolean evictOne(long now) {
+        long first = lastTick + 1;
+        int examined = 0;
+        for (int i = 0; i < wheel.length && examined < EVICT_SCAN; i++) {
+            for (Entry e : wheel[(int) ((first + i) % wheel.length)]) {
+                if (++examined > EVICT_SCAN) return false;
+                if (e.blockedUntil > now) continue;
+                // Stays in its wheel slot; the tick skips entries no longer in the map
+                if (entries.remove(e.ip, e)) {
+                    size.decrementAndGet();
+                    evicted.incrementAndGet();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void schedule(Entry e) {
+        long tick = Math.max(e.expiresAt / tickMs, lastTick + 1);
+        wheel[(int) (tick % wheel.length)].add(e);
+    }
+
+    @Scheduled(fixedDelayString = "${tracker.tcp.reputation.tickMs:30000}")
+    public void tick() {
+        long now = clock.getAsLong();
+        long current = now / tickMs;
+        // Walk every slot passed since the last tick (at most one full turn)
+        for (long t = lastTick + 1; t <= current && t <= lastTick + wheel.length; t++) {
+            ConcurrentLinkedQueue<Entry> slot = wheel[(int) (t % wheel.length)];
+            int n = slot.size();
+            for (int i = 0; i < n; i++) {
+                Entry e = slot.poll();
+                if (e == null) break;
+                if (e.expiresAt <= now) {
+                    if (entries.remove(e.ip, e)) size.decrementAndGet();
+                } else if (entries.get(e.ip) == e) {
+                    // extended since it was scheduled (more failures or a block)
+                    wheel[(int) (Math.max(e.expiresAt / tickMs, current + 1) % wheel.length)].add(e);
+                }
+            }
+        }
+        lastTick = current;
+    }
+
+    public Map<String, Object> snapshot(int limit) {
+        long now = clock.getAsLong();
+        List<Entry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparingLong((Entry e) -> e.blockedUntil).reversed()
+                .thenComparing(e -> -e.failures.get()));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        int blocked = 0;
+        for (Entry e : list) {
+            boolean isBlocked = e.blockedUntil > now;
+            if (isBlocked) blocked++;
+            if (rows.size() < limit) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("ip", e.ip);
+                row.put("failures", e.failures.get());
+                row.put("blocked", isBlocked);
+                row.put("blockedUntil", isBlocked ? Instant.ofEpochMilli(e.blockedUntil).toString() : null);
+                row.put("expiresAt", Instant.ofEpochMilli(e.expiresAt).toString());
+                rows.add(row);
+            }
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("tracked", size.get());
+        out.put("capacity", capacity);
+        out.put("blocked", blocked);
+        out.put("rejectedConnections", rejected.get());
+        out.put("untrackedFailures", untracked.get());
+        out.put("evicted", evicted.get());
+        out.put("entries", rows);
+        return out;
+    }
+}
@@ -0,0 +1,61 @@
+package com.zedcarhire.zedcarhiretracker.tcp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One TCP listener: a port and how many acceptor threads share it.
+ *
+ * Spec format (tracker.tcp.listeners, comma-separated):
+ *   name:port[:acceptors]
+ * e.g. gt06:5000:4,backup:5001:1
+ */
+public class ListenerConfig {
+
+    private final String name;
+    private final int port;
+    private final int acceptors;
+
+    public ListenerConfig(String name, int port, int acceptors) {
+        if (port <= 0 || port > 65535) throw new IllegalArgumentException("Invalid port for listener " + name + ": " + port);
+        if (acceptors < 1) throw new IllegalArgumentException("Listener " + name + " needs at least one acceptor");
+        this.name = name;
+        this.port = port;
+        this.acceptors = acceptors;
+    }
+
+    public static List<ListenerConfig> parseAll(String specs, int defaultAcceptors) {
+        List<ListenerConfig> out = new ArrayList<>();
+        if (specs == null) return out;
+        for (String spec : specs.split(",")) {
+            if (!spec.isBlank()) out.add(parse(spec.trim(), defaultAcceptors));
+        }
+        return out;
+    }
+
+    public static ListenerConfig parse(String spec, int defaultAcceptors) {
+        String[] parts = spec.split(":");
+        if (parts.length < 2 || parts.length > 3) {
+            throw new IllegalArgumentException("Listener spec must be name:port[:acceptors], got: " + spec);
+        }
+        int acceptors = parts.length > 2 && !parts[2].isBlank() ? Integer.parseInt(parts[2].trim()) : defaultAcceptors;
+        return new ListenerConfig(parts[0].trim(), Integer.parseInt(parts[1].trim()), acceptors);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getAcceptors() {
+        return acceptors;
+    }
+
+    @Override
+    public String toString() {
+        return name + ":" + port + " (" + acceptors + " acceptor" + (acceptors > 1 ? "s" : "") + ")";
+    }
+}
@@ -9,15 +9,38 @@ public class SessionManager {
     // Socket -> IMEI mapping
     private static final Map<Socket, String> sessionImeis = new ConcurrentHashMap<>();
 
+    // IMEI -> live connection, for sending commands; the latest login wins
+    private static final Map<String, DeviceConnection> connections = new ConcurrentHashMap<>();
+
     public static void bind(Socket socket, String imei) {
         sessionImeis.put(socket, imei);
     }
 
+    public static void bind(DeviceConnection connection, String imei) {
+        String previous = sessionImeis.put(connection.getSocket(), imei);
+        if (previous != null && !previous.equals(imei)) {
+            connections.remove(previous, connection);
+        }
+        connections.put(imei, connection);
+    }
+
     public static String getImei(Socket socket) {
         return sessionImeis.get(socket);
     }
 
+    public static DeviceConnection connection(String imei) {
+        return connections.get(imei);
+    }
+
+    public static int connected() {
+        return connections.size();
+    }
+
     public static void remove(Socket socket) {
-        sessionImeis.remove(socket);
+        String imei = sessionImeis.remove(socket);
+        if (imei != null) {
+            // Only if a newer connection has not already taken over the IMEI
+            connections.computeIfPresent(imei, (k, c) -> c.getSocket() == socket ? null : c);
+        }
     }
 }
@@ -1,23 +1,30 @@
 package com.zedcarhire.zedcarhiretracker.tcp;
 
+import com.zedcarhire.zedcarhiretracker.model.DeviceState;
 import com.zedcarhire.zedcarhiretracker.model.TrackerData;
 import com.zedcarhire.zedcarhiretracker.protocol.Decoded;
-import com.zedcarhire.zedcarhiretracker.protocol.Decoder;
 import com.zedcarhire.zedcarhiretracker.protocol.DecoderRegistry;
+import com.zedcarhire.zedcarhiretracker.protocol.DecoderSession;
 import com.zedcarhire.zedcarhiretracker.protocol.Gt06Decoder;
+import com.zedcarhire.zedcarhiretracker.rules.RuleEngine;
+import com.zedcarhire.zedcarhiretracker.service.DeviceRegistry;
+import com.zedcarhire.zedcarhiretracker.service.DeviceStateStore;
 import com.zedcarhire.zedcarhiretracker.service.TrackerService;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.StandardSocketOptions;
 import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -36,71 +43,129 @@ public class TcpServer {
     @Value("${tracker.tcp.backlog:200}")
     private int backlog;
 
-    private final TrackerService trackerService;
-    private final ExecutorService pool = Executors.newCachedThreadPool();
+    // Acceptor threads per listener (and for the default listener on tracker.tcp.port)
+    @Value("${tracker.tcp.acceptors:1}")
+    private int acceptors;
 
-    // Track failed connection attempts per IP
-    private final Map<String, Integer> failedAttempts = new ConcurrentHashMap<>();
-    private final Map<String, Long> blockedIPs = new ConcurrentHashMap<>();
+    // name:port[:acceptors], comma-separated; empty = single listener on tracker.tcp.port
+    @Value("${tracker.tcp.listeners:}")
+    private String listenerSpecs;
 
-    public TcpServer(TrackerService trackerService) {
+    private final TrackerService trackerService;
+    private final DeviceStateStore deviceStates;
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final List<ServerSocket> serverSockets = new CopyOnWriteArrayList<>();
+    private final IpReputation reputation;
+    private final DeviceRegistry registry;
+    private final RuleEngine rules;
+    private final CommandService commands;
+    private final DecoderRegistry decoders = new DecoderRegistry();
+
+    public TcpServer(TrackerService trackerService, DeviceStateStore deviceStates, IpReputation reputation,
+                     DeviceRegistry registry, RuleEngine rules, CommandService commands) {
         this.trackerService = trackerService;
+        this.deviceStates = deviceStates;
+        this.reputation = reputation;
+        this.registry = registry;
+        this.rules = rules;
+        this.commands = commands;
     }
 
-    private final Decoder decoder = new Gt06Decoder();
-    private final DecoderRegistry decoderRegistry = new DecoderRegistry();
-
     @PostConstruct
     public void start() {
         if (!enabled) return;
 
-        pool.submit(() -> {
-            try (ServerSocket server = new ServerSocket(port, backlog, InetAddress.getByName(bind))) {
-                System.out.println("[TCP] Listening on " + bind + ":" + port);
-                while (true) {
-                    Socket socket = server.accept();
-                    String clientIP = socket.getInetAddress().getHostAddress();
-
-                    // Check if IP is blocked
-                    if (isBlocked(clientIP)) {
-                        System.out.println("[TCP] BLOCKED connection from " + clientIP);
-                        socket.close();
-                        continue;
-                    }
+        List<ListenerConfig> listeners = ListenerConfig.parseAll(listenerSpecs, acceptors);
+        if (listeners.isEmpty()) {
+            listeners.add(new ListenerConfig("default", port, acceptors));
+        }
 
-                    System.out.println("[TCP] Accepted connection from " + socket.getRemoteSocketAddress());
-                    pool.submit(() -> handle(socket));
-                }
+        for (ListenerConfig listener : listeners) {
+            try {
+                open(listener);
             } catch (Exception e) {
-                e.printStackTrace();
+                System.err.println("[TCP] Could not open listener " + listener + ": " + e.getMessage());
             }
-        });
+        }
     }
 
-    private boolean isBlocked(String ip) {
-        Long blockedUntil = blockedIPs.get(ip);
-        if (blockedUntil != null) {
-            if (System.currentTimeMillis() < blockedUntil) {
-                return true; // Still blocked
+    /**
+     * Opens the listener's sockets and starts its acceptor threads.
+     * With several acceptors each one binds its own socket via SO_REUSEPORT so the kernel
+     * spreads incoming connections (and their accept backlog) across them; where the
+     * option is unavailable the acceptors share a single socket.
+     */
+    private void open(ListenerConfig listener) throws Exception {
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getByName(bind), listener.getPort());
+        boolean reusePort = listener.getAcceptors() > 1 && supportsReusePort();
+
+        ServerSocket shared = null;
+        for (int i = 1; i <= listener.getAcceptors(); i++) {
+            ServerSocket server;
+            if (reusePort) {
+                server = new ServerSocket();
+                server.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                server.bind(address, backlog);
+                serverSockets.add(server);
             } else {
-                blockedIPs.remove(ip); // Unblock after timeout
-                failedAttempts.remove(ip);
+                if (shared == null) {
+                    shared = new ServerSocket();
+                    shared.bind(address, backlog);
+                    serverSockets.add(shared);
+                }
+                server = shared;
             }
+
+            System.out.println("[TCP] Listening on " + bind + ":" + listener.getPort() +
+                    " [" + listener.getName() + " acceptor " + i + "/" + listener.getAcceptors() +
+                    (reusePort ? ", SO_REUSEPORT" : "") + "]");
+
+            ServerSocket s = server;
+            pool.submit(() -> acceptLoop(s, listener));
+        }
+    }
+
+    private static boolean supportsReusePort() {
+        try (ServerSocket probe = new ServerSocket()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (Exception e) {
+            return false;
         }
-        return false;
     }
 
-    private void recordFailedAttempt(String ip) {
-        int attempts = failedAttempts.getOrDefault(ip, 0) + 1;
-        failedAttempts.put(ip, attempts);
+    private void acceptLoop(ServerSocket server, ListenerConfig listener) {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                String clientIP = socket.getInetAddress().getHostAddress();
+
+                // Check if IP is blocked - reset right away, before any thread or buffer is spent on it
+                if (reputation.isBlocked(clientIP)) {
+                    socket.setSoLinger(true, 0);
+                    socket.close();
+                    continue;
+                }
 
-        if (attempts >= 3) {
-            // Block for 1 hour
-            blockedIPs.put(ip, System.currentTimeMillis() + (60 * 60 * 1000));
-            System.out.println("[SECURITY] IP " + ip + " blocked for 1 hour after " + attempts + " invalid attempts");
+                System.out.println("[TCP] Accepted connection from " + socket.getRemoteSocketAddress() + " on " + listener.getName());
+                pool.submit(() -> handle(socket));
+            } catch (Exception e) {
+                if (server.isClosed()) break;
+                e.printStackTrace();
+            }
         }
     }
 
+    @PreDestroy
+    public void stop() {
+        for (ServerSocket server : serverSockets) {
+            try {
+                server.close();
+            } catch (Exception ignored) {
+            }
+        }
+        pool.shutdownNow();
+    }
+
     private void handle(Socket socket) {
         String clientIP = socket.getInetAddress().getHostAddress();
         System.out.println("[TCP] Connection opened: " + socket.getRemoteSocketAddress());
@@ -109,84 +174,121 @@ public class TcpServer {
              InputStream in = s.getInputStream();
              OutputStream out = s.getOutputStream()) {
 
+            // ACKs and API commands share this connection's write queue
+            DeviceConnection connection = new DeviceConnection(s, out);
+
             byte[] buf = new byte[2048];
             int len;
+            FrameReader frames = new FrameReader();
+            DecoderSession session = new DecoderSession();
 
             boolean validTrackerDetected = false;
 
             while ((len = in.read(buf)) != -1) {
+                frames.feed(buf, len);
+
+                // One read can hold part of a frame or several frames
+                byte[] pkt;
+                while ((pkt = frames.next()) != null) {
+
+                    String hex = Gt06Decoder.toHex(pkt);
+                    System.out.println("[TCP] HEX: " + hex);
+
+                    // Decode packet
+                    Decoded d = decoders.decode(pkt, session);
+
+                    if (d != null) {
+                        validTrackerDetected = true;
+                        if (pkt.length > 3) {
+                            System.out.println("[DECODE DEBUG] PROTO=" + (pkt[3] & 0xFF) + " LEN=" + pkt.length);
+                        }
+
+                        // LOGIN PACKET (IMEI present)
+                        if (d.imei != null && !d.imei.equals("UNKNOWN")) {
+                            if (!registry.accepts(d.imei)) {
+                                // Not counted against the IP: behind carrier NAT one stray unit would get
+                                // every tracker sharing that address blocked
+                                System.out.println("[SECURITY] Login from unregistered IMEI " + d.imei + " (" + clientIP + ")");
+                                return; // Close connection before binding, saving or ACKing anything
+                            }
+                            System.out.println("[LOGIN] IMEI Bound: " + d.imei);
+                            SessionManager.bind(connection, d.imei);
+                            session.setImei(d.imei);
+                            reputation.clear(clientIP); // Clear failed attempts on successful login
+                        }
+
+                        // Retrieve IMEI from session (applies to GPS packets)
+                        String imei = SessionManager.getImei(socket);
+
+                        // Alert rules see every packet of a logged-in device
+                        if (imei != null) {
+                            rules.evaluate(imei, d);
+                        }
+
+                        // COMMAND REPLY - completes the API call waiting on it
+                        if (imei != null && "COMMAND_REPLY".equals(d.type)) {
+                            commands.onReply(imei, d.serverFlag, d.commandReply);
+                        }
+
+                        // HEARTBEAT / STATUS PACKET - update device state in place, no row per packet
+                        if (imei != null && ("HEARTBEAT".equals(d.type) || "STATUS".equals(d.type))) {
+                            deviceStates.onStatus(imei, d);
+                        }
+
+                        // INFO PACKET - external (vehicle) voltage
+                        if (imei != null && d.externalMv != null) {
+                            deviceStates.onInfo(imei, d);
+                        }
+
+                        // GPS PACKET
+                        if (imei != null && d.latitude != null && d.longitude != null) {
+                            deviceStates.onFix(imei, d);
+                            DeviceState state = deviceStates.get(imei);
+
+                            TrackerData td = new TrackerData();
+                            td.setImei(imei);
+                            td.setLatitude(d.latitude);
+                            td.setLongitude(d.longitude);
+                            td.setSpeedKph(d.speedKph != null ? d.speedKph : 0.0);
+                            td.setCourse(d.course);
+                            td.setAcc(d.acc != null ? d.acc : state.getAcc());
+                            td.setBatteryMv(d.batteryMv != null ? d.batteryMv : state.getBatteryMv());
+                            td.setGpsTime(d.gpsTime != null ? d.gpsTime : LocalDateTime.now());
+                            td.setRawHex(hex);
+
+                            trackerService.save(td);
+
+                            System.out.println("[GPS] Saved → " + imei +
+                                    " LAT=" + d.latitude +
+                                    " LNG=" + d.longitude +
+                                    " SPEED=" + td.getSpeedKph());
+                        }
 
-                byte[] pkt = new byte[len];
-                System.arraycopy(buf, 0, pkt, 0, len);
-
-                // Quick validation: GT06 packets start with 0x78 0x78 or 0x79 0x79
-                if (len < 2 ||
-                        !((pkt[0] == 0x78 && pkt[1] == 0x78) ||
-                                (pkt[0] == 0x79 && pkt[1] == 0x79))) {
-
-                    System.out.println("[SECURITY] Invalid packet format from " + clientIP);
-                    System.out.println("[SECURITY] First bytes: " + String.format("%02X %02X", pkt[0], pkt[1]));
-                    recordFailedAttempt(clientIP);
-                    return; // Close connection immediately
-                }
-
-                String hex = Gt06Decoder.toHex(pkt);
-                System.out.println("[TCP] HEX: " + hex);
-
-                // Decode packet
-                Decoded d = decoderRegistry.decode(pkt, socket);
-
-                if (d != null) {
-                    validTrackerDetected = true;
-                    System.out.println("[DECODE DEBUG] PROTO=" + (pkt[3] & 0xFF) + " LEN=" + pkt.length);
-
-                    // LOGIN PACKET (IMEI present)
-                    if (d.imei != null && !d.imei.equals("UNKNOWN")) {
-                        System.out.println("[LOGIN] IMEI Bound: " + d.imei);
-                        SessionManager.bind(socket, d.imei);
-                        failedAttempts.remove(clientIP); // Clear failed attempts on successful login
-                    }
-
-                    // Retrieve IMEI from session (applies to GPS packets)
-                    String imei = SessionManager.getImei(socket);
-
-                    // GPS PACKET
-                    if (imei != null && d.latitude != null && d.longitude != null) {
-
-                        TrackerData td = new TrackerData();
-                        td.setImei(imei);
-                        td.setLatitude(d.latitude);
-                        td.setLongitude(d.longitude);
-                        td.setSpeedKph(d.speedKph != null ? d.speedKph : 0.0);
-                        td.setCourse(d.course);
-                        td.setGpsTime(d.gpsTime != null ? d.gpsTime : LocalDateTime.now());
-                        td.setRawHex(hex);
-
-                        trackerService.save(td);
-
-                        System.out.println("[GPS] Saved → " + imei +
-                                " LAT=" + d.latitude +
-                                " LNG=" + d.longitude +
-                                " SPEED=" + td.getSpeedKph());
+                    } else {
+                        // UNKNOWN PACKET
+                        if (!validTrackerDetected) {
+                            System.out.println("[SECURITY] Unrecognized packet from unverified source: " + clientIP);
+                            reputation.recordFailure(clientIP);
+                        } else {
+                            System.out.println("[WARN] Unrecognized packet from valid tracker. Logged for analysis.");
+                            trackerService.saveRaw(hex);
+                        }
                     }
 
-                } else {
-                    // UNKNOWN PACKET
-                    if (!validTrackerDetected) {
-                        System.out.println("[SECURITY] Unrecognized packet from unverified source: " + clientIP);
-                        recordFailedAttempt(clientIP);
-                    } else {
-                        System.out.println("[WARN] Unrecognized packet from valid tracker. Logged for analysis.");
-                        trackerService.saveRaw(hex);
+                    // ACK IF NEEDED
+                    byte[] ack = Gt06Decoder.buildAck(pkt);
+                    if (ack != null) {
+                        connection.send(ack);
+                        System.out.println("[ACK] Sent");
                     }
                 }
 
-                // ACK IF NEEDED
-                byte[] ack = Gt06Decoder.buildAck(pkt);
-                if (ack != null) {
-                    out.write(ack);
-                    out.flush();
-                    System.out.println("[ACK] Sent");
+                // Quick validation: GT06 frames start with 0x78 0x78 or 0x79 0x79 and end with 0x0D 0x0A
+                if (frames.isCorrupt()) {
+                    System.out.println("[SECURITY] Invalid packet format from " + clientIP);
+                    System.out.println("[SECURITY] First bytes: " + Gt06Decoder.toHex(frames.head(2)));
+                    reputation.recordFailure(clientIP);
+                    return; // Close connection immediately
                 }
             }
 
@@ -0,0 +1,41 @@
+package com.zedcarhire.zedcarhiretracker.web;
+
+import com.zedcarhire.zedcarhiretracker.rules.AlertEvent;
+import com.zedcarhire.zedcarhiretracker.rules.Rule;
+import com.zedcarhire.zedcarhiretracker.rules.RuleEngine;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/alerts")
+public class AlertController {
+
+    private final RuleEngine rules;
+
+    public AlertController(RuleEngine rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Recent alerts for the API key's devices, oldest first. Poll with the last seen seq.
+     * Example:
+     * GET /api/alerts?after=1520&limit=100
+     */
+    @GetMapping
+    public List<AlertEvent> recent(@RequestParam(name = "after", defaultValue = "0") long after,
+                                   @RequestParam(name = "limit", defaultValue = "100") int limit,
+                                   @RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant) {
+        return rules.recent(after, Math.min(Math.max(limit, 1), 1000), tenant);
+    }
+
+    /**
+     * Active rules plus engine counters (raised, dropped, queued)
+     */
+    @GetMapping("/rules")
+    public Map<String, Object> rules(@RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant) {
+        List<Rule> list = rules.rules(tenant);
+        return Map.of("rules", list, "stats", rules.stats());
+    }
+}
@@ -1,5 +1,7 @@
 package com.zedcarhire.zedcarhiretracker.web;
 
+import com.zedcarhire.zedcarhiretracker.service.DeviceRegistry;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,25 +11,128 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Unified API Key Filter
  * Supports multiple API keys from tracking.apiKeys property
  * Checks both X-API-KEY and X-API-Key headers for compatibility
+ *
+ * Keys are parsed once at startup into a set of SHA-256 digests; each key gets two
+ * token buckets - one for cheap lookups (live/last) and one for range queries.
+ * Each key also carries a tenant (tracking.apiKeyTenants), exposed to controllers as the
+ * TENANT request attribute so results can be limited to that tenant's devices.
  */
 @Component
 public class ApiKeyFilter extends OncePerRequestFilter {
 
+    // Range queries that hit tracker_data with a scan
+    private static final List<String> EXPENSIVE_PATHS = List.of(
+            "/api/tracker-data",
+            "/api/tracking/history",
+            "/api/tracking/fleet-history"
+    );
+
+    // Submitting one of these queues a large scan or bulk write; polling and downloads stay cheap
+    private static final List<String> EXPENSIVE_SUBMISSIONS = List.of(
+            "/api/exports",
+            "/api/push/batch",
+            "/api/commands"
+    );
+
+    // Sends commands (fuel cut etc.) to vehicles; only keys in tracking.commandKeys may call it
+    private static final String COMMANDS = "/api/commands";
+
+    // Request attribute holding the caller's tenant; "*" sees every device
+    public static final String TENANT = "tracking.tenant";
+
     @Value("#{'${tracking.apiKeys}'.split(',')}")
     private List<String> validKeys;
 
+    // key:tenant pairs, comma-separated; keys not listed see every device
+    @Value("${tracking.apiKeyTenants:}")
+    private String keyTenants;
+
+    // Keys allowed to send device commands, comma-separated; empty = none
+    @Value("${tracking.commandKeys:}")
+    private String commandKeys;
+
+    @Value("${tracking.rateLimit.enabled:true}")
+    private boolean rateLimitEnabled;
+
+    @Value("${tracking.rateLimit.cheap.perSecond:10}")
+    private double cheapPerSecond;
+
+    @Value("${tracking.rateLimit.cheap.burst:20}")
+    private int cheapBurst;
+
+    @Value("${tracking.rateLimit.expensive.perSecond:1}")
+    private double expensivePerSecond;
+
+    @Value("${tracking.rateLimit.expensive.burst:5}")
+    private int expensiveBurst;
+
+    // SHA-256(key) -> per-key state
+    private final Map<ByteBuffer, ApiKey> keys = new HashMap<>();
+
+    private static class ApiKey {
+        final int index;
+        final byte[] digest;
+        final String tenant;
+        final boolean commands;
+        final TokenBucket cheap;
+        final TokenBucket expensive;
+
+        ApiKey(int index, byte[] digest, String tenant, boolean commands, TokenBucket cheap, TokenBucket expensive) {
+            this.index = index;
+            this.digest = digest;
+            this.tenant = tenant;
+            this.commands = commands;
+            this.cheap = cheap;
+            this.expensive = expensive;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        Map<String, String> tenants = new HashMap<>();
+        for (String pair : keyTenants.split(",")) {
+            int colon = pair.lastIndexOf(':');
+            if (colon > 0) tenants.put(pair.substring(0, colon).trim(), pair.substring(colon + 1).trim());
+        }
+        Set<String> commanders = new HashSet<>();
+        for (String k : commandKeys.split(",")) {
+            if (!k.isBlank()) commanders.add(k.trim());
+        }
+
+        for (String k : validKeys) {
+            String trimmed = k.trim();
+            if (trimmed.isEmpty()) continue;
+            byte[] digest = sha256(trimmed);
+            keys.putIfAbsent(ByteBuffer.wrap(digest), new ApiKey(keys.size(), digest,
+                    tenants.getOrDefault(trimmed, DeviceRegistry.ALL_TENANTS), commanders.contains(trimmed),
+                    new TokenBucket(cheapPerSecond, cheapBurst),
+                    new TokenBucket(expensivePerSecond, expensiveBurst)));
+        }
+        System.out.println("[API] " + keys.size() + " API keys loaded, " + tenants.size() + " scoped to a tenant, " +
+                commanders.size() + " allowed to send commands" +
+                (rateLimitEnabled ? ", rate limit " + cheapPerSecond + "/s (burst " + cheapBurst + ") cheap, " +
+                        expensivePerSecond + "/s (burst " + expensiveBurst + ") expensive" : ", rate limit off"));
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
 
         String uri = request.getRequestURI();
-        String method = request.getMethod();
 
         // Try both header variations (X-API-KEY and X-API-Key)
         String key = request.getHeader("X-API-KEY");
@@ -35,54 +140,67 @@ public class ApiKeyFilter extends OncePerRequestFilter {
             key = request.getHeader("X-API-Key");
         }
 
-        // DEBUG LOGGING - Remove these after fixing
-        System.out.println("========================================");
-        System.out.println("=== API KEY FILTER DEBUG ===");
-        System.out.println("========================================");
-        System.out.println("URI: " + uri);
-        System.out.println("Method: " + method);
-        System.out.println("Received API Key: [" + (key != null ? key : "NULL") + "]");
-        System.out.println("Valid Keys Configured: " + validKeys.size());
-
-        // Print each valid key for comparison (trimmed)
-        for (int i = 0; i < validKeys.size(); i++) {
-            String trimmedKey = validKeys.get(i).trim();
-            System.out.println("  Valid Key [" + i + "]: [" + trimmedKey + "] (length: " + trimmedKey.length() + ")");
+        // Check if API key is missing
+        if (key == null) {
+            System.out.println("[API] REJECTED " + request.getMethod() + " " + uri + ": no API key");
+            unauthorized(response);
+            return;
         }
 
-        if (key != null) {
-            System.out.println("Received Key Length: " + key.length());
+        // Validate API key: lookup by digest, confirmed with a constant-time compare
+        byte[] digest = sha256(key.trim());
+        ApiKey apiKey = keys.get(ByteBuffer.wrap(digest));
+        if (apiKey == null || !MessageDigest.isEqual(apiKey.digest, digest)) {
+            System.out.println("[API] REJECTED " + request.getMethod() + " " + uri + ": invalid API key");
+            unauthorized(response);
+            return;
         }
 
-        // Check if API key is missing
-        if (key == null) {
-            System.out.println("REJECTED: No API key provided in request");
-            System.out.println("========================================\n");
-            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        if (!apiKey.commands && "POST".equals(request.getMethod()) && COMMANDS.equals(uri)) {
+            System.out.println("[API] REJECTED command from key #" + apiKey.index + ": not in tracking.commandKeys");
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
             response.setContentType("application/json");
-            response.getWriter().write("{\"ok\":false,\"error\":\"unauthorized\"}");
+            response.getWriter().write("{\"ok\":false,\"error\":\"commands_not_allowed\"}");
             return;
         }
 
-        // Validate API key
-        final String receivedKey = key.trim();
-        boolean isValid = validKeys.stream()
-                .anyMatch(k -> k.trim().equals(receivedKey));
+        if (rateLimitEnabled) {
+            TokenBucket bucket = isExpensive(request.getMethod(), uri) ? apiKey.expensive : apiKey.cheap;
+            long waitNanos = bucket.tryAcquire();
+            if (waitNanos > 0) {
+                long retryAfter = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+                System.out.println("[API] RATE LIMITED key #" + apiKey.index + " on " + uri + ", retry after " + retryAfter + "s");
+                response.setStatus(429);
+                response.setHeader("Retry-After", String.valueOf(retryAfter));
+                response.setContentType("application/json");
+                response.getWriter().write("{\"ok\":false,\"error\":\"rate_limited\"}");
+                return;
+            }
+        }
 
-        System.out.println("Key Validation Result: " + (isValid ? "VALID ✓" : "INVALID ✗"));
+        request.setAttribute(TENANT, apiKey.tenant);
+        chain.doFilter(request, response);
+    }
 
-        if (!isValid) {
-            System.out.println("REJECTED: API key does not match any configured key");
-            System.out.println("========================================\n");
-            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-            response.setContentType("application/json");
-            response.getWriter().write("{\"ok\":false,\"error\":\"unauthorized\"}");
-            return;
+    private static boolean isExpensive(String method, String uri) {
+        for (String p : EXPENSIVE_PATHS) {
+            if (uri.startsWith(p)) return true;
         }
+        return "POST".equals(method) && EXPENSIVE_SUBMISSIONS.contains(uri);
+    }
 
-        System.out.println("ACCEPTED: Valid API key - proceeding to controller");
-        System.out.println("========================================\n");
-        chain.doFilter(request, response);
+    private static void unauthorized(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setContentType("application/json");
+        response.getWriter().write("{\"ok\":false,\"error\":\"unauthorized\"}");
+    }
+
+    private static byte[] sha256(String s) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     @Override
@@ -98,4 +216,4 @@ public class ApiKeyFilter extends OncePerRequestFilter {
 
         return skip;
     }
-}
\ No newline at end of file
+}
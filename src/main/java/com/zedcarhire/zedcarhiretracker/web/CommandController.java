@@ -0,0 +1,74 @@
+package com.zedcarhire.zedcarhiretracker.web;
+
+import com.zedcarhire.zedcarhiretracker.service.DeviceRegistry;
+import com.zedcarhire.zedcarhiretracker.tcp.CommandService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+@RestController
+@RequestMapping("/api/commands")
+public class CommandController {
+
+    private final CommandService commands;
+    private final DeviceRegistry registry;
+
+    public CommandController(CommandService commands, DeviceRegistry registry) {
+        this.commands = commands;
+        this.registry = registry;
+    }
+
+    /**
+     * Sends a GT06 server command to a connected device and returns its reply.
+     * The request thread is released while waiting; 504 if the device does not answer in time.
+     * Only API keys listed in tracking.commandKeys may send commands.
+     * Example:
+     * POST /api/commands
+     * {"imei":"3547...","command":"DYD,000000#","timeoutMs":20000}
+     * Common commands: DYD,000000# (fuel cut), HFYD,000000# (restore), WHERE# (position)
+     */
+    @PostMapping
+    public CompletableFuture<ResponseEntity<?>> send(@RequestBody CommandRequest body,
+                                                     @RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant) {
+        if (body.imei() == null || body.imei().isBlank()) {
+            return done(ResponseEntity.badRequest().body(Map.of("ok", false, "error", "imei is required")));
+        }
+        if (!registry.canSee(tenant, body.imei())) {
+            return done(ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("ok", false, "error", "IMEI outside this API key's fleet")));
+        }
+
+        try {
+            return commands.send(body.imei(), body.command(), body.timeoutMs())
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(CommandController::failed);
+        } catch (IllegalArgumentException e) {
+            return done(ResponseEntity.badRequest().body(Map.of("ok", false, "error", e.getMessage())));
+        } catch (IllegalStateException e) {
+            return done(ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("ok", false, "error", e.getMessage())));
+        }
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        return commands.stats();
+    }
+
+    private static ResponseEntity<?> failed(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof TimeoutException) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                    .body(Map.of("ok", false, "error", "no reply from device"));
+        }
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(Map.of("ok", false, "error", String.valueOf(cause.getMessage())));
+    }
+
+    private static CompletableFuture<ResponseEntity<?>> done(ResponseEntity<?> response) {
+        return CompletableFuture.completedFuture(response);
+    }
+}
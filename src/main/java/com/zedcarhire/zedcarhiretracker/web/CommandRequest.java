@@ -0,0 +1,11 @@
+package com.zedcarhire.zedcarhiretracker.web;
+
+/**
+ * Body of POST /api/commands
+ */
+public record CommandRequest(
+        String imei,
+        String command,     // device command text, e.g. "DYD,000000#" or "WHERE#"
+        Long timeoutMs      // optional, capped at tracker.commands.maxTimeoutMs
+) {
+}
@@ -0,0 +1,103 @@
+package com.zedcarhire.zedcarhiretracker.web;
+
+import com.zedcarhire.zedcarhiretracker.model.TrackPoint;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact track representation, opt-in with ?format=compact or
+ * Accept: application/vnd.zedcarhire.compact+json
+ *
+ * - polyline: Google encoded polyline (1e-5 degree precision)
+ * - time: seconds since {@code start}, delta-encoded (first value 0)
+ * - speed / course: whole km/h and degrees, delta-encoded
+ * Points are always in ascending time order.
+ */
+public record CompactTrack(
+        String imei,
+        int count,
+        LocalDateTime start,
+        String polyline,
+        int[] time,
+        int[] speed,
+        int[] course
+) {
+
+    public static final String MEDIA_TYPE = "application/vnd.zedcarhire.compact+json";
+
+    public static boolean isRequested(String format, String accept) {
+        if (format != null) return "compact".equalsIgnoreCase(format);
+        return accept != null && accept.contains(MEDIA_TYPE);
+    }
+
+    /**
+     * One compact track per IMEI, in order of first appearance.
+     */
+    public static List<CompactTrack> group(List<TrackPoint> points) {
+        Map<String, List<TrackPoint>> byImei = new LinkedHashMap<>();
+        for (TrackPoint p : points) {
+            byImei.computeIfAbsent(p.imei(), k -> new ArrayList<>()).add(p);
+        }
+        List<CompactTrack> out = new ArrayList<>(byImei.size());
+        for (Map.Entry<String, List<TrackPoint>> e : byImei.entrySet()) {
+            out.add(of(e.getKey(), e.getValue()));
+        }
+        return out;
+    }
+
+    public static CompactTrack of(String imei, List<TrackPoint> points) {
+        List<TrackPoint> sorted = new ArrayList<>(points);
+        sorted.sort(Comparator.comparing(TrackPoint::gpsTime, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        int n = sorted.size();
+        int[] time = new int[n];
+        int[] speed = new int[n];
+        int[] course = new int[n];
+        StringBuilder polyline = new StringBuilder(n * 8);
+
+        LocalDateTime start = n > 0 ? sorted.get(0).gpsTime() : null;
+        LocalDateTime prevTime = start;
+        long prevLat = 0, prevLng = 0;
+        int prevSpeed = 0, prevCourse = 0;
+
+        for (int i = 0; i < n; i++) {
+            TrackPoint p = sorted.get(i);
+
+            long lat = Math.round(p.latitude() * 1e5);
+            long lng = Math.round(p.longitude() * 1e5);
+            encode(polyline, lat - prevLat);
+            encode(polyline, lng - prevLng);
+            prevLat = lat;
+            prevLng = lng;
+
+            LocalDateTime t = p.gpsTime();
+            time[i] = t != null && prevTime != null ? (int) Duration.between(prevTime, t).getSeconds() : 0;
+            if (t != null) prevTime = t;
+
+            int s = (int) Math.round(p.speedKph());
+            speed[i] = s - prevSpeed;
+            prevSpeed = s;
+
+            int c = p.course() != null ? p.course() : prevCourse;
+            course[i] = c - prevCourse;
+            prevCourse = c;
+        }
+
+        return new CompactTrack(imei, n, start, polyline.toString(), time, speed, course);
+    }
+
+    private static void encode(StringBuilder sb, long delta) {
+        long v = delta < 0 ? ~(delta << 1) : delta << 1;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1F)) + 63));
+            v >>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+}
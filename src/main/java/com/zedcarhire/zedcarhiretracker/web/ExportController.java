@@ -0,0 +1,117 @@
+package com.zedcarhire.zedcarhiretracker.web;
+
+import com.zedcarhire.zedcarhiretracker.service.DeviceRegistry;
+import com.zedcarhire.zedcarhiretracker.service.ExportJob;
+import com.zedcarhire.zedcarhiretracker.service.ExportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/exports")
+public class ExportController {
+
+    private final ExportService exports;
+    private final DeviceRegistry registry;
+
+    public ExportController(ExportService exports, DeviceRegistry registry) {
+        this.exports = exports;
+        this.registry = registry;
+    }
+
+    /**
+     * Queue a bulk export; poll the returned job until status is DONE, then download it.
+     * Example:
+     * POST /api/exports {"imeis":["3547..."],"from":"2025-01-01T00:00:00","to":"2025-03-31T23:59:59","format":"gpx"}
+     */
+    @PostMapping
+    public ResponseEntity<?> submit(@RequestBody ExportRequest body,
+                                    @RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant) {
+        if (body.imeis() != null && registry.visible(tenant, body.imeis()).size() != body.imeis().size()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("ok", false, "error", "IMEI outside this API key's fleet"));
+        }
+        try {
+            ExportJob job = exports.submit(body.imeis(), body.from(), body.to(), body.format(), tenant);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("ok", false, "error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "60")
+                    .body(Map.of("ok", false, "error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Jobs submitted by the API key's tenant (all jobs for unscoped keys), newest first
+     */
+    @GetMapping
+    public Collection<ExportJob> list(@RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant) {
+        return exports.list(tenant);
+    }
+
+    // Another tenant's job is reported as not found
+    @GetMapping("/{id}")
+    public ResponseEntity<ExportJob> status(@PathVariable("id") String id,
+                                            @RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant) {
+        ExportJob job = exports.get(id, tenant);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * The finished .csv.gz / .gpx.gz file. Uses Tomcat's sendfile when the connector
+     * supports it, otherwise a channel-to-channel transfer.
+     */
+    @GetMapping("/{id}/download")
+    public void download(@PathVariable("id") String id,
+                         @RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ExportJob job = exports.get(id, tenant);
+        if (job == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (job.getStatus() != ExportJob.Status.DONE) {
+            response.setStatus(HttpServletResponse.SC_CONFLICT);
+            response.setContentType("application/json");
+            response.getWriter().write("{\"ok\":false,\"error\":\"export is " + job.getStatus() + "\"}");
+            return;
+        }
+
+        long length = job.getBytes();
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/gzip");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + job.getFileName() + "\"");
+        response.setContentLengthLong(length);
+
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", job.getFile().toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+            request.setAttribute("org.apache.tomcat.sendfile.end", length);
+            return;
+        }
+
+        try (FileChannel in = FileChannel.open(job.getFile(), StandardOpenOption.READ)) {
+            OutputStream os = response.getOutputStream();
+            WritableByteChannel out = Channels.newChannel(os);
+            long pos = 0;
+            while (pos < length) {
+                pos += in.transferTo(pos, length - pos, out);
+            }
+            os.flush();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.zedcarhire.zedcarhiretracker.web;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Body of POST /api/exports
+ */
+public record ExportRequest(
+        List<String> imeis,
+        LocalDateTime from,
+        LocalDateTime to,
+        String format   // csv (default) or gpx
+) {
+}
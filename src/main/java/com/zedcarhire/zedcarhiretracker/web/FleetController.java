@@ -0,0 +1,42 @@
+package com.zedcarhire.zedcarhiretracker.web;
+
+import com.zedcarhire.zedcarhiretracker.model.DeviceState;
+import com.zedcarhire.zedcarhiretracker.service.DeviceRegistry;
+import com.zedcarhire.zedcarhiretracker.service.DeviceStateStore;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/fleet")
+public class FleetController {
+
+    private final DeviceStateStore deviceStates;
+    private final DeviceRegistry registry;
+
+    public FleetController(DeviceStateStore deviceStates, DeviceRegistry registry) {
+        this.deviceStates = deviceStates;
+        this.registry = registry;
+    }
+
+    /**
+     * Latest health (ACC, charge, voltage, GSM signal, last heartbeat/fix) per device.
+     * Served from memory - no database access.
+     * Example:
+     * GET /api/fleet/health
+     * GET /api/fleet/health?imeis=3547...,3547...
+     */
+    @GetMapping("/health")
+    public List<DeviceState> health(@RequestParam(name = "imeis", required = false) String imeis,
+                                    @RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant) {
+        if (imeis == null || imeis.isBlank()) {
+            return registry.filter(tenant, deviceStates.snapshot(null), DeviceState::getImei);
+        }
+        List<String> list = registry.visible(tenant, Arrays.stream(imeis.split(","))
+                .map(String::trim)
+                .collect(Collectors.toList()));
+        return deviceStates.snapshot(list);
+    }
+}
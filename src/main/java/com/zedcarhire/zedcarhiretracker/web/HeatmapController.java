@@ -0,0 +1,61 @@
+package com.zedcarhire.zedcarhiretracker.web;
+
+import com.zedcarhire.zedcarhiretracker.service.DensityAggregator;
+import com.zedcarhire.zedcarhiretracker.service.DeviceRegistry;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/heatmap")
+public class HeatmapController {
+
+    private final DensityAggregator density;
+
+    public HeatmapController(DensityAggregator density) {
+        this.density = density;
+    }
+
+    /**
+     * Fleet density for one Web Mercator tile, summed over whole days.
+     * Returns a 64x64 grid as sparse parallel arrays: cells[i] = row * 64 + column,
+     * with fixes[i] and dwellSeconds[i] for that cell.
+     * Example:
+     * GET /api/heatmap/11/1184/1112?from=2025-01-01&to=2025-01-31
+     * Fleet-wide data, so only API keys without a tenant may read it.
+     */
+    @GetMapping("/{z}/{x}/{y}")
+    public ResponseEntity<?> tile(
+            @PathVariable("z") int z,
+            @PathVariable("x") int x,
+            @PathVariable("y") int y,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant) {
+
+        if (tenant != null && !DeviceRegistry.ALL_TENANTS.equals(tenant)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("ok", false, "error", "heatmaps are fleet-wide"));
+        }
+        if (!density.hasZoom(z)) {
+            return ResponseEntity.badRequest().body(Map.of("ok", false, "error", "zoom " + z + " is not aggregated"));
+        }
+        long n = 1L << z;
+        if (x < 0 || y < 0 || x >= n || y >= n || to.isBefore(from)) {
+            return ResponseEntity.badRequest().body(Map.of("ok", false, "error", "invalid tile or range"));
+        }
+
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (to.isBefore(LocalDate.now())) {
+            // Past days only change if late fixes arrive
+            ok.cacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePrivate());
+        }
+        return ok.body(density.tile(z, x, y, from, to));
+    }
+}
@@ -0,0 +1,36 @@
+package com.zedcarhire.zedcarhiretracker.web;
+
+import com.zedcarhire.zedcarhiretracker.service.DeviceRegistry;
+import com.zedcarhire.zedcarhiretracker.tcp.IpReputation;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/tcp")
+public class TcpController {
+
+    private final IpReputation reputation;
+
+    public TcpController(IpReputation reputation) {
+        this.reputation = reputation;
+    }
+
+    /**
+     * IP reputation table of the TCP listener: counters plus blocked / failing IPs first.
+     * Only for API keys without a tenant.
+     * Example:
+     * GET /api/tcp/reputation?limit=50
+     */
+    @GetMapping("/reputation")
+    public ResponseEntity<?> reputation(@RequestParam(name = "limit", defaultValue = "100") int limit,
+                                        @RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant) {
+        if (tenant != null && !DeviceRegistry.ALL_TENANTS.equals(tenant)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("ok", false, "error", "TCP reputation is fleet-wide"));
+        }
+        return ResponseEntity.ok(reputation.snapshot(Math.max(0, Math.min(limit, 1000))));
+    }
+}
@@ -0,0 +1,46 @@
+package com.zedcarhire.zedcarhiretracker.web;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token bucket (GCRA form).
+ * Instead of a token count it keeps the "theoretical arrival time" of the next request;
+ * a request is allowed while that time is no more than one burst ahead of now.
+ * One CAS per request, no timers, no locks.
+ */
+public class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    // Start with a full bucket: any arrival time not after now is one
+    private final AtomicLong tat = new AtomicLong(Long.MIN_VALUE);
+
+    // Replaced in tests
+    LongSupplier clock = System::nanoTime;
+
+    public TokenBucket(double perSecond, int burst) {
+        if (perSecond <= 0) throw new IllegalArgumentException("perSecond must be > 0");
+        this.nanosPerToken = (long) (1_000_000_000L / perSecond);
+        this.burstNanos = Math.max(1, burst) * nanosPerToken;
+    }
+
+    /**
+     * Takes one token.
+     * @return 0 if allowed, otherwise nanoseconds until a token becomes available
+     */
+    public long tryAcquire() {
+        long now = clock.getAsLong();
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + nanosPerToken;
+            long allowedAt = next - burstNanos;
+            if (allowedAt > now) {
+                return allowedAt - now;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -1,10 +1,23 @@
 package com.zedcarhire.zedcarhiretracker.web;
 
+import com.zedcarhire.zedcarhiretracker.model.TrackPoint;
 import com.zedcarhire.zedcarhiretracker.model.TrackerData;
+import com.zedcarhire.zedcarhiretracker.service.DeviceRegistry;
+import com.zedcarhire.zedcarhiretracker.service.Gazetteer;
+import com.zedcarhire.zedcarhiretracker.service.HistoryCache;
+import com.zedcarhire.zedcarhiretracker.service.PushIngestService;
 import com.zedcarhire.zedcarhiretracker.service.TrackerService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
@@ -15,39 +28,88 @@ import java.util.stream.Collectors;
 public class TrackerController {
 
     private final TrackerService service;
+    private final HistoryCache cache;
+    private final Gazetteer gazetteer;
+    private final DeviceRegistry registry;
+    private final PushIngestService pushIngest;
 
-    public TrackerController(TrackerService service) {
+    public TrackerController(TrackerService service, HistoryCache cache, Gazetteer gazetteer, DeviceRegistry registry,
+                             PushIngestService pushIngest) {
         this.service = service;
+        this.cache = cache;
+        this.gazetteer = gazetteer;
+        this.registry = registry;
+        this.pushIngest = pushIngest;
     }
 
     /**
      * Search / filter tracking data by IMEI + date range
      * Example:
      * GET /api/tracker-data?imei=356789123456789&from=2025-01-01T00:00:00&to=2025-01-01T23:59:59
+     * Single-IMEI searches over a closed range are cached and carry an ETag.
+     * ?format=compact (or the compact Accept type) returns one CompactTrack per IMEI.
+     * Only devices of the API key's tenant are returned.
      */
     @GetMapping("/tracker-data")
-    public List<TrackerData> search(
+    public ResponseEntity<?> search(
             @RequestParam(name = "imei", required = false) String imei,
             @RequestParam(name = "from", required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
             @RequestParam(name = "to", required = false)
-            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(name = "format", required = false) String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant,
+            WebRequest request
     ) {
-        return service.search(imei, from, to);
+        if (imei != null && !registry.canSee(tenant, imei)) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean compact = CompactTrack.isRequested(format, accept);
+
+        if (!cache.isCacheable(imei, from, to)) {
+            return body(ResponseEntity.ok(), registry.filter(tenant, service.search(imei, from, to), TrackPoint::imei), compact);
+        }
+
+        HistoryCache.Entry<TrackPoint> entry = cache.get("search", imei, from, to,
+                () -> service.search(imei, from, to));
+        String etag = compact ? HistoryCache.etagVariant(entry.getEtag(), "c") : entry.getEtag();
+        if (request.checkNotModified(etag, entry.getLastModified())) {
+            return null;
+        }
+        return body(ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .eTag(etag)
+                        .lastModified(entry.getLastModified())
+                        .varyBy(HttpHeaders.ACCEPT),
+                entry.getRows(), compact);
+    }
+
+    private static ResponseEntity<?> body(ResponseEntity.BodyBuilder builder, List<TrackPoint> points, boolean compact) {
+        if (compact) {
+            return builder.contentType(MediaType.parseMediaType(CompactTrack.MEDIA_TYPE))
+                    .body(CompactTrack.group(points));
+        }
+        return builder.body(points);
     }
 
     /**
      * Get the latest positions for multiple trackers
      * Example:
      * GET /api/last?imeis=3547...,3547...
+     * &labels=true adds a "near X" place label to each position
      */
     @GetMapping("/last")
-    public List<TrackerData> last(@RequestParam("imeis") String imeis) {
-        List<String> list = Arrays.stream(imeis.split(","))
+    public List<TrackPoint> last(@RequestParam("imeis") String imeis,
+                                 @RequestParam(name = "labels", defaultValue = "false") boolean labels,
+                                 @RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant) {
+        List<String> list = registry.visible(tenant, Arrays.stream(imeis.split(","))
                 .map(String::trim)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+        if (list.isEmpty()) return List.of();
 
-        return service.last(list);
+        List<TrackPoint> points = service.last(list);
+        return labels ? gazetteer.labelAll(points) : points;
     }
 
     /**
@@ -55,9 +117,33 @@ public class TrackerController {
      * 3rd party devices can send POST JSON to store data directly
      */
     @PostMapping("/push")
-    public String push(@RequestBody TrackerData incoming) {
+    public ResponseEntity<String> push(@RequestBody TrackerData incoming,
+                                       @RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant) {
+        if (!registry.accepts(incoming.getImei()) || !registry.canSee(tenant, incoming.getImei())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("{\"ok\":false,\"error\":\"unknown_device\"}");
+        }
         if (incoming.getGpsTime() == null) incoming.setGpsTime(LocalDateTime.now());
         service.save(incoming);
-        return "{\"ok\":true}";
+        return ResponseEntity.ok("{\"ok\":true}");
+    }
+
+    /**
+     * Bulk vendor push: the same objects as /api/push, as a JSON array or NDJSON (one per line).
+     * Records are validated one by one and stored in chunks; the summary lists each rejected
+     * record by its 0-based position.
+     * Example:
+     * POST /api/push/batch  (Content-Type: application/x-ndjson)
+     * {"imei":"3547...","latitude":-15.41,"longitude":28.28,"speedKph":42,"gpsTime":"2025-01-01T10:00:00"}
+     * {"imei":"3547...","latitude":-15.42,"longitude":28.29,"speedKph":40,"gpsTime":"2025-01-01T10:00:10"}
+     */
+    @PostMapping("/push/batch")
+    public ResponseEntity<PushIngestService.Summary> pushBatch(HttpServletRequest request,
+                                                               @RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant)
+            throws IOException {
+        PushIngestService.Summary summary = pushIngest.ingest(request.getInputStream(), tenant);
+        if (summary.received() > 0 && summary.accepted() == 0) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(summary);
+        }
+        return ResponseEntity.ok(summary);
     }
 }
@@ -1,38 +1,183 @@
 package com.zedcarhire.zedcarhiretracker.web;
 
-import com.zedcarhire.zedcarhiretracker.model.TrackerData;
+import com.zedcarhire.zedcarhiretracker.model.TrackPoint;
 import com.zedcarhire.zedcarhiretracker.repo.TrackerDataRepository;
+import com.zedcarhire.zedcarhiretracker.service.DeviceRegistry;
+import com.zedcarhire.zedcarhiretracker.service.FleetHistoryService;
+import com.zedcarhire.zedcarhiretracker.service.Gazetteer;
+import com.zedcarhire.zedcarhiretracker.service.HistoryCache;
+import com.zedcarhire.zedcarhiretracker.service.RecentTracks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/tracking")
 public class TrackingController {
 
     private final TrackerDataRepository repo;
+    private final HistoryCache cache;
+    private final Gazetteer gazetteer;
+    private final DeviceRegistry registry;
+    private final RecentTracks recent;
+    private final FleetHistoryService fleetHistory;
 
-    public TrackingController(TrackerDataRepository repo) {
+    @Value("${tracking.fleetHistory.maxImeis:100}")
+    private int maxFleetImeis;
+
+    @Value("${tracking.fleetHistory.maxDays:7}")
+    private int maxFleetDays;
+
+    public TrackingController(TrackerDataRepository repo, HistoryCache cache, Gazetteer gazetteer,
+                              DeviceRegistry registry, RecentTracks recent, FleetHistoryService fleetHistory) {
         this.repo = repo;
+        this.cache = cache;
+        this.gazetteer = gazetteer;
+        this.registry = registry;
+        this.recent = recent;
+        this.fleetHistory = fleetHistory;
     }
 
-    // Live/latest position
+    // Live/latest position (&labels=true adds a "near X" place label)
     @GetMapping("/live")
-    public TrackerData getLatest(@RequestParam("imei") String imei) {
-        return repo.findTop1ByImeiOrderByGpsTimeDesc(imei)
+    public TrackPoint getLatest(@RequestParam("imei") String imei,
+                                @RequestParam(name = "labels", defaultValue = "false") boolean labels,
+                                @RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant) {
+        if (!registry.canSee(tenant, imei)) {
+            throw new RuntimeException("No data for IMEI: " + imei);
+        }
+        TrackPoint p = repo.latestPoints(imei, PageRequest.of(0, 1)).stream()
+                .findFirst()
                 .orElseThrow(() -> new RuntimeException("No data for IMEI: " + imei));
+        return labels ? p.withPlace(gazetteer.label(p.latitude(), p.longitude())) : p;
     }
 
     // Route history for playback
+    // Ranges within the last few hours come from RecentTracks without touching the database
+    // Closed ranges are served from HistoryCache with an ETag; browsers revalidate and get 304
+    // ?format=compact (or Accept: application/vnd.zedcarhire.compact+json) returns a CompactTrack
+    // &labels=true adds a "near X" place label to each point (JSON format only)
     @GetMapping("/history")
-    public List<TrackerData> getHistory(
+    public ResponseEntity<?> getHistory(
             @RequestParam("imei") String imei,
             @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
-            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(name = "format", required = false) String format,
+            @RequestParam(name = "labels", defaultValue = "false") boolean labels,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant,
+            WebRequest request) {
+
+        if (!registry.canSee(tenant, imei)) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean compact = CompactTrack.isRequested(format, accept);
+
+        List<TrackPoint> inMemory = recent.range(imei, start, end);
+        if (inMemory != null) {
+            return body(ResponseEntity.ok(), imei, inMemory, compact, labels);
+        }
+
+        if (!cache.isCacheable(imei, start, end)) {
+            return body(ResponseEntity.ok(), imei, repo.historyPoints(imei, start, end), compact, labels);
+        }
+
+        HistoryCache.Entry<TrackPoint> entry = cache.get("history", imei, start, end,
+                () -> repo.historyPoints(imei, start, end));
+        String etag = compact ? HistoryCache.etagVariant(entry.getEtag(), "c")
+                : labels ? HistoryCache.etagVariant(entry.getEtag(), "p")
+                : entry.getEtag();
+        if (request.checkNotModified(etag, entry.getLastModified())) {
+            return null;
+        }
+        return body(ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .eTag(etag)
+                        .lastModified(entry.getLastModified())
+                        .varyBy(HttpHeaders.ACCEPT),
+                imei, entry.getRows(), compact, labels);
+    }
+
+    /**
+     * Tracks of several vehicles over the same window, e.g. a convoy, in one request.
+     * Returns a JSON array in the order requested: {imei, count, points} per vehicle, or a
+     * CompactTrack per vehicle with format=compact; &labels=true labels JSON points as /history does.
+     * Any IMEI outside the API key's fleet fails the whole request with 403, and windows
+     * longer than maxDays or tracks of more than maxRows points in total are refused.
+     * Example:
+     * GET /api/tracking/fleet-history?imeis=3547...,3547...&start=2025-01-01T08:00:00&end=2025-01-01T18:00:00
+     */
+    @GetMapping("/fleet-history")
+    public ResponseEntity<?> getFleetHistory(
+            @RequestParam("imeis") String imeis,
+            @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(name = "format", required = false) String format,
+            @RequestParam(name = "labels", defaultValue = "false") boolean labels,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant) {
+
+        List<String> list = Arrays.stream(imeis.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+        if (registry.visible(tenant, list).size() != list.size()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("ok", false, "error", "IMEI outside this API key's fleet"));
+        }
+        if (list.size() > maxFleetImeis) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("ok", false, "error", "at most " + maxFleetImeis + " IMEIs per request"));
+        }
+        if (end.isBefore(start)) {
+            return ResponseEntity.badRequest().body(Map.of("ok", false, "error", "end is before start"));
+        }
+        if (end.isAfter(start.plusDays(maxFleetDays))) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("ok", false, "error", "window is longer than " + maxFleetDays + " days"));
+        }
+
+        Map<String, List<TrackPoint>> tracks;
+        try {
+            tracks = fleetHistory.load(list, start, end);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("ok", false, "error", e.getMessage()));
+        }
+        if (CompactTrack.isRequested(format, accept)) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(CompactTrack.MEDIA_TYPE))
+                    .body(fleetHistory.toJsonArray(tracks, CompactTrack::of));
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(fleetHistory.toJsonArray(tracks, (imei, points) ->
+                        new VehicleTrack(imei, points.size(), labels ? gazetteer.labelAll(points) : points)));
+    }
+
+    public record VehicleTrack(String imei, int count, List<TrackPoint> points) {
+    }
 
-        return repo.findByImeiAndGpsTimeBetweenOrderByGpsTimeAsc(imei, start, end);
+    private ResponseEntity<?> body(ResponseEntity.BodyBuilder builder, String imei,
+                                   List<TrackPoint> points, boolean compact, boolean labels) {
+        if (compact) {
+            return builder.contentType(MediaType.parseMediaType(CompactTrack.MEDIA_TYPE))
+                    .body(CompactTrack.of(imei, points));
+        }
+        return builder.body(labels ? gazetteer.labelAll(points) : points);
     }
 
 }
@@ -0,0 +1,35 @@
+package com.zedcarhire.zedcarhiretracker.web;
+
+import com.zedcarhire.zedcarhiretracker.service.DeviceRegistry;
+import com.zedcarhire.zedcarhiretracker.webhook.WebhookDispatcher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/webhooks")
+public class WebhookController {
+
+    private final WebhookDispatcher webhooks;
+
+    public WebhookController(WebhookDispatcher webhooks) {
+        this.webhooks = webhooks;
+    }
+
+    /**
+     * Per-endpoint delivery counters: queued, sent, failed, rejected, dropped,
+     * spilledBytes and circuit (open/closed). Only for API keys without a tenant.
+     * Example:
+     * GET /api/webhooks
+     */
+    @GetMapping
+    public ResponseEntity<?> stats(@RequestAttribute(name = ApiKeyFilter.TENANT, required = false) String tenant) {
+        if (tenant != null && !DeviceRegistry.ALL_TENANTS.equals(tenant)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("ok", false, "error", "webhook stats are fleet-wide"));
+        }
+        return ResponseEntity.ok(Map.of("endpoints", webhooks.stats()));
+    }
+}
@@ -0,0 +1,160 @@
+package com.zedcarhire.zedcarhiretracker.webhook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only file of undelivered webhook batches, one JSON payload per line, replayed
+ * oldest first. The read position is kept in a sidecar .offset file so a restart resumes
+ * where delivery stopped; once everything is replayed the file is truncated, and once a
+ * quarter of maxBytes has been delivered the undelivered tail is copied to a fresh file.
+ * Delivery is at-least-once: a crash during compaction can replay batches already sent.
+ * Only used from the endpoint's sender thread (or after it has stopped).
+ */
+class SpillFile {
+
+    private final Path file;
+    private final Path offsetFile;
+    private final Path compactFile;
+    private final Path offsetTmp;
+    private final long maxBytes;
+    private final long compactAt;
+    private long offset;
+
+    SpillFile(Path dir, String name, long maxBytes) throws IOException {
+        Files.createDirectories(dir);
+        this.file = dir.resolve(name + ".ndjson");
+        this.offsetFile = dir.resolve(name + ".offset");
+        this.compactFile = dir.resolve(name + ".ndjson.tmp");
+        this.offsetTmp = dir.resolve(name + ".offset.tmp");
+        this.maxBytes = maxBytes;
+        this.compactAt = Math.max(1, maxBytes / 4);
+        Files.deleteIfExists(compactFile);
+        Files.deleteIfExists(offsetTmp);
+        if (Files.exists(offsetFile)) {
+            offset = Long.parseLong(Files.readString(offsetFile).trim());
+        }
+        if (offset > size()) offset = 0;
+        dropPartialLine();
+    }
+
+    // A crash mid-append leaves a line without '\n'; cut it so later appends stay parseable
+    private void dropPartialLine() throws IOException {
+        if (size() == 0) return;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            long end = ch.size();
+            while (end > 0) {
+                one.clear();
+                ch.read(one, end - 1);
+                if (one.get(0) == '\n') break;
+                end--;
+            }
+            if (end < ch.size()) {
+                ch.truncate(end);
+                if (offset > end) offset = end;
+            }
+        }
+    }
+
+    long size() {
+        try {
+            return Files.exists(file) ? Files.size(file) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    long pending() {
+        return Math.max(0, size() - offset);
+    }
+
+    /**
+     * @return false if the file is full and the batch was not kept
+     */
+    boolean append(byte[] payload) throws IOException {
+        // Only undelivered bytes count; the delivered prefix is dropped to make room
+        if (pending() + payload.length + 1 > maxBytes) return false;
+        if (size() + payload.length + 1 > maxBytes) compact();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer buf = ByteBuffer.allocate(payload.length + 1);
+            buf.put(payload).put((byte) '\n').flip();
+            while (buf.hasRemaining()) ch.write(buf);
+        }
+        return true;
+    }
+
+    /**
+     * Oldest undelivered batch, or null if none
+     */
+    byte[] peek() throws IOException {
+        if (pending() == 0) return null;
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long pos = offset;
+            while (ch.read(buf, pos) > 0) {
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    byte b = buf.get();
+                    if (b == '\n') return line.toByteArray();
+                    line.write(b);
+                }
+                pos += buf.limit();
+                buf.clear();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Marks the batch returned by peek() as delivered
+     */
+    void advance(byte[] delivered) throws IOException {
+        offset += delivered.length + 1;
+        if (offset >= size()) {
+            Files.deleteIfExists(file);
+            offset = 0;
+        } else if (offset >= compactAt) {
+            compact();
+            return;
+        }
+        writeOffset();
+    }
+
+    /**
+     * Rewrites the file without the delivered prefix. The new offset is saved before the
+     * file is swapped in, so a crash in between replays the old file from the start
+     * instead of reading the new one at a stale offset.
+     */
+    private void compact() throws IOException {
+        if (offset == 0) return;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(compactFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long pos = offset;
+            long end = in.size();
+            while (pos < end) pos += in.transferTo(pos, end - pos, out);
+            out.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(compactFile);
+            throw e;
+        }
+        offset = 0;
+        writeOffset();
+        Files.move(compactFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Written aside and moved into place so a crash never leaves a half-written offset
+    private void writeOffset() throws IOException {
+        Files.writeString(offsetTmp, Long.toString(offset));
+        Files.move(offsetTmp, offsetFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,160 @@
+package com.zedcarhire.zedcarhiretracker.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zedcarhire.zedcarhiretracker.model.TrackPoint;
+import com.zedcarhire.zedcarhiretracker.model.TrackerData;
+import com.zedcarhire.zedcarhiretracker.rules.AlertEvent;
+import com.zedcarhire.zedcarhiretracker.rules.AlertListener;
+import com.zedcarhire.zedcarhiretracker.service.DeviceRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.net.http.HttpClient;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes fixes and alerts to downstream systems so they do not have to poll the API.
+ *
+ * Endpoints are listed in tracking.webhooks and configured under tracking.webhook.<name>.*
+ * (url, secret, tenant, events). Each endpoint has its own bounded queue and sender
+ * thread (see WebhookEndpoint), so ingest only pays for an offer() per endpoint and a
+ * slow or dead receiver never holds up the TCP server or the other endpoints.
+ */
+@Service
+public class WebhookDispatcher implements AlertListener {
+
+    private static final String PREFIX = "tracking.webhook.";
+
+    @Value("${tracking.webhooks:}")
+    private String names;
+
+    @Value("${tracking.webhook.batchSize:200}")
+    private int batchSize;
+
+    @Value("${tracking.webhook.batchMs:1000}")
+    private long batchMs;
+
+    @Value("${tracking.webhook.queueSize:10000}")
+    private int queueSize;
+
+    @Value("${tracking.webhook.maxRetries:3}")
+    private int maxRetries;
+
+    @Value("${tracking.webhook.maxBackoffMs:30000}")
+    private long maxBackoffMs;
+
+    @Value("${tracking.webhook.breakerFailures:5}")
+    private int breakerFailures;
+
+    @Value("${tracking.webhook.breakerOpenMs:30000}")
+    private long breakerOpenMs;
+
+    @Value("${tracking.webhook.timeoutMs:10000}")
+    private long timeoutMs;
+
+    @Value("${tracking.webhook.spillDir:webhooks}")
+    private String spillDir;
+
+    @Value("${tracking.webhook.maxSpillMb:512}")
+    private long maxSpillMb;
+
+    private final Environment env;
+    private final ObjectMapper json;
+    private final DeviceRegistry registry;
+
+    private volatile List<WebhookEndpoint> endpoints = List.of();
+
+    record Settings(int batchSize, long batchMs, int queueSize, int maxRetries, long maxBackoffMs,
+                    int breakerFailures, long breakerOpenMs, long timeoutMs) {
+    }
+
+    public WebhookDispatcher(Environment env, ObjectMapper json, DeviceRegistry registry) {
+        this.env = env;
+        this.json = json;
+        this.registry = registry;
+    }
+
+    @PostConstruct
+    public void start() {
+        Settings settings = new Settings(Math.max(1, batchSize), Math.max(1, batchMs), Math.max(1, queueSize),
+                maxRetries, maxBackoffMs, Math.max(1, breakerFailures), breakerOpenMs, timeoutMs);
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+
+        List<WebhookEndpoint> list = new ArrayList<>();
+        for (String name : names.split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) continue;
+            String url = env.getProperty(PREFIX + name + ".url");
+            if (url == null || url.isBlank()) {
+                System.err.println("[WEBHOOK] " + name + " has no url, skipped");
+                continue;
+            }
+            Set<String> events = Arrays.stream(env.getProperty(PREFIX + name + ".events", "fixes,alerts").split(","))
+                    .map(String::trim)
+                    .collect(Collectors.toSet());
+            try {
+                SpillFile spill = new SpillFile(Paths.get(spillDir), name, maxSpillMb * 1024 * 1024);
+                WebhookEndpoint endpoint = new WebhookEndpoint(name, url, env.getProperty(PREFIX + name + ".secret"),
+                        env.getProperty(PREFIX + name + ".tenant"), events.contains("fixes"), events.contains("alerts"),
+                        settings, http, json, spill);
+                endpoint.start();
+                list.add(endpoint);
+                System.out.println("[WEBHOOK] " + name + " → " + url + " " + events +
+                        (spill.pending() > 0 ? ", " + spill.pending() + " bytes to replay" : ""));
+            } catch (Exception e) {
+                System.err.println("[WEBHOOK] " + name + " not started: " + e.getMessage());
+            }
+        }
+        endpoints = List.copyOf(list);
+    }
+
+    @PreDestroy
+    public void stop() {
+        endpoints.forEach(WebhookEndpoint::stop);
+    }
+
+    /**
+     * Called for every stored fix; never blocks
+     */
+    public void onFix(TrackerData td) {
+        List<WebhookEndpoint> targets = endpoints;
+        if (targets.isEmpty() || td.getImei() == null) return;
+
+        TrackPoint point = null;
+        for (WebhookEndpoint e : targets) {
+            if (!e.fixes || !registry.canSee(e.tenant, td.getImei())) continue;
+            if (point == null) {
+                point = new TrackPoint(td.getImei(), td.getLatitude(), td.getLongitude(), td.getSpeedKph(),
+                        td.getCourse(), td.getAcc(), td.getBatteryMv(), td.getMileageM(), td.getGpsTime());
+            }
+            e.offer(new WebhookEndpoint.Item("fix", point));
+        }
+    }
+
+    @Override
+    public void onAlert(AlertEvent event) {
+        for (WebhookEndpoint e : endpoints) {
+            if (!e.alerts) continue;
+            if (e.tenant != null && !DeviceRegistry.ALL_TENANTS.equals(e.tenant) && !e.tenant.equals(event.tenant())) {
+                continue;
+            }
+            e.offer(new WebhookEndpoint.Item("alert", event));
+        }
+    }
+
+    public List<Map<String, Object>> stats() {
+        return endpoints.stream().map(WebhookEndpoint::stats).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,315 @@
+package com.zedcarhire.zedcarhiretracker.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One webhook receiver: a bounded queue fed by ingest, and a sender thread that batches,
+ * retries with exponential backoff, trips a circuit breaker after repeated failures and
+ * spills batches to disk while the receiver is down. Ingest only ever calls offer().
+ */
+class WebhookEndpoint implements Runnable {
+
+    final String name;
+    final String tenant;          // null = all devices
+    final boolean fixes;
+    final boolean alerts;
+
+    private final URI url;
+    private final String secret;
+    private final WebhookDispatcher.Settings settings;
+    private final HttpClient http;
+    private final ObjectMapper json;
+    private final SpillFile spill;
+
+    private final BlockingQueue<Item> queue;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    // Circuit breaker, only touched by the sender thread
+    private int consecutiveFailures;
+    private long openMs;
+    private volatile long openUntil;
+
+    private volatile boolean running = true;
+    private Thread thread;
+
+    record Item(String kind, Object data) {
+    }
+
+    WebhookEndpoint(String name, String url, String secret, String tenant, boolean fixes, boolean alerts,
+                    WebhookDispatcher.Settings settings, HttpClient http, ObjectMapper json, SpillFile spill) {
+        this.name = name;
+        this.url = URI.create(url);
+        this.secret = secret;
+        this.tenant = tenant;
+        this.fixes = fixes;
+        this.alerts = alerts;
+        this.settings = settings;
+        this.http = http;
+        this.json = json;
+        this.spill = spill;
+        this.queue = new ArrayBlockingQueue<>(settings.queueSize());
+    }
+
+    void start() {
+        thread = new Thread(this, "webhook-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the sender and spills whatever is still queued, so it is replayed on the next start
+     */
+    void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(settings.timeoutMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (thread.isAlive()) {
+                System.err.println("[WEBHOOK] " + name + " sender did not stop, " + queue.size() + " queued items lost");
+                return;
+            }
+        }
+
+        List<Item> left = new ArrayList<>(queue.size());
+        queue.drainTo(left);
+        try {
+            for (int i = 0; i < left.size(); i += settings.batchSize()) {
+                keep(encode(left.subList(i, Math.min(left.size(), i + settings.batchSize()))));
+            }
+            if (!left.isEmpty()) System.out.println("[WEBHOOK] " + name + " spilled " + left.size() + " queued items");
+        } catch (Exception e) {
+            System.err.println("[WEBHOOK] " + name + " could not spill queued items: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Never blocks; a full queue drops the item
+     */
+    void offer(Item item) {
+        if (!queue.offer(item)) dropped.incrementAndGet();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                if (System.currentTimeMillis() < openUntil) {
+                    // Receiver is down: move what arrives to disk so the queue never fills
+                    byte[] batch = nextBatch(Math.min(settings.batchMs(), openUntil - System.currentTimeMillis()));
+                    if (batch != null) keep(batch);
+                    continue;
+                }
+
+                byte[] replay = spill.peek();
+                if (replay != null) {
+                    if (send(replay)) spill.advance(replay);
+                    continue;
+                }
+
+                byte[] batch = nextBatch(settings.batchMs());
+                if (batch != null) deliver(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.err.println("[WEBHOOK] " + name + ": " + e.getMessage());
+                sleepQuietly(1000);
+            }
+        }
+    }
+
+    /**
+     * Waits up to maxWaitMs for the first item, then until batchSize items or batchMs have passed
+     */
+    private byte[] nextBatch(long maxWaitMs) throws Exception {
+        Item first = queue.poll(Math.max(1, maxWaitMs), TimeUnit.MILLISECONDS);
+        if (first == null) return null;
+
+        List<Item> items = new ArrayList<>(settings.batchSize());
+        items.add(first);
+        long deadline = System.currentTimeMillis() + settings.batchMs();
+        while (items.size() < settings.batchSize()) {
+            queue.drainTo(items, settings.batchSize() - items.size());
+            long left = deadline - System.currentTimeMillis();
+            if (items.size() >= settings.batchSize() || left <= 0) break;
+            Item next;
+            try {
+                next = queue.poll(left, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // Stopping (running is already false): hand back what was taken so it is spilled
+                break;
+            }
+            if (next == null) break;
+            items.add(next);
+        }
+        return encode(items);
+    }
+
+    // Every payload starts with this, so the id can be read back from spilled bytes
+    private static final byte[] ID_PREFIX = "{\"id\":\"".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] encode(List<Item> items) throws Exception {
+        List<Object> fixList = new ArrayList<>();
+        List<Object> alertList = new ArrayList<>();
+        for (Item item : items) {
+            (item.kind().equals("fix") ? fixList : alertList).add(item.data());
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        // Same id on every retry and replay of this batch, so the receiver can drop duplicates
+        body.put("id", UUID.randomUUID().toString().replace("-", ""));
+        body.put("endpoint", name);
+        body.put("createdAt", LocalDateTime.now());
+        if (!fixList.isEmpty()) body.put("fixes", fixList);
+        if (!alertList.isEmpty()) body.put("alerts", alertList);
+        return json.writeValueAsBytes(body);
+    }
+
+    /**
+     * Posts with retries; true once delivered (or permanently rejected), false if it should be kept for later
+     */
+    private boolean send(byte[] payload) throws InterruptedException {
+        for (int attempt = 0; attempt <= settings.maxRetries(); attempt++) {
+            int status = post(payload);
+            if (status >= 200 && status < 300) {
+                sent.incrementAndGet();
+                consecutiveFailures = 0;
+                openMs = 0;
+                return true;
+            }
+            if (status >= 400 && status < 500 && status != 408 && status != 429) {
+                // The receiver will never accept this payload; retrying would block the queue
+                rejected.incrementAndGet();
+                System.err.println("[WEBHOOK] " + name + " rejected a batch with HTTP " + status + ", dropped");
+                return true;
+            }
+
+            failed.incrementAndGet();
+            if (++consecutiveFailures >= settings.breakerFailures()) {
+                openMs = openMs == 0 ? settings.breakerOpenMs() : Math.min(openMs * 2, settings.maxBackoffMs() * 10);
+                openUntil = System.currentTimeMillis() + openMs;
+                System.err.println("[WEBHOOK] " + name + " circuit open for " + openMs + " ms after " +
+                        consecutiveFailures + " failures");
+                return false;
+            }
+            if (attempt < settings.maxRetries()) {
+                Thread.sleep(Math.min(settings.maxBackoffMs(), 500L << attempt));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Id of an encoded batch, or null for a payload spilled before batches carried one
+     */
+    static String batchId(byte[] payload) {
+        if (payload.length < ID_PREFIX.length) return null;
+        for (int i = 0; i < ID_PREFIX.length; i++) {
+            if (payload[i] != ID_PREFIX[i]) return null;
+        }
+        for (int i = ID_PREFIX.length; i < payload.length; i++) {
+            if (payload[i] == '"') return new String(payload, ID_PREFIX.length, i - ID_PREFIX.length, StandardCharsets.US_ASCII);
+        }
+        return null;
+    }
+
+    // HTTP status, or -1 if the request failed
+    private int post(byte[] payload) throws InterruptedException {
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder(url)
+                    .timeout(Duration.ofMillis(settings.timeoutMs()))
+                    .header("Content-Type", "application/json")
+                    .header("X-Webhook-Endpoint", name)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(payload));
+            String id = batchId(payload);
+            if (id != null) {
+                request.header("X-Webhook-Id", id);
+            }
+            if (secret != null && !secret.isEmpty()) {
+                request.header("X-Signature", "sha256=" + hmac(payload));
+            }
+            return http.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private String hmac(byte[] payload) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] d = mac.doFinal(payload);
+        StringBuilder sb = new StringBuilder(d.length * 2);
+        for (byte b : d) sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+
+    /**
+     * Sends a batch taken from the queue, keeping it on disk if it cannot be delivered now
+     */
+    private void deliver(byte[] batch) throws Exception {
+        boolean delivered = false;
+        try {
+            if (running) delivered = send(batch);
+        } catch (InterruptedException e) {
+            // Stopped mid-send; the interrupt is consumed, so the spill file can still be written
+        }
+        if (!delivered) keep(batch);
+        if (!running) throw new InterruptedException();
+    }
+
+    private void keep(byte[] batch) throws Exception {
+        if (!spill.append(batch)) {
+            dropped.incrementAndGet();
+            System.err.println("[WEBHOOK] " + name + " spill file full, batch dropped");
+        }
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("name", name);
+        m.put("url", url.getHost());
+        m.put("tenant", tenant != null ? tenant : "*");
+        m.put("queued", queue.size());
+        m.put("sent", sent.get());
+        m.put("failed", failed.get());
+        m.put("rejected", rejected.get());
+        m.put("dropped", dropped.get());
+        m.put("spilledBytes", spill.pending());
+        m.put("circuit", System.currentTimeMillis() < openUntil ? "open" : "closed");
+        return m;
+    }
+}
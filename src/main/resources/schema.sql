@@ -17,3 +17,42 @@ CREATE TABLE IF NOT EXISTS tracker_data (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     KEY idx_imei_time (imei, gps_time)
     ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Latest health per device, upserted periodically by DeviceStateStore
+CREATE TABLE IF NOT EXISTS device_state (
+    imei VARCHAR(32) NOT NULL PRIMARY KEY,
+    acc TINYINT DEFAULT NULL,
+    charging BOOLEAN DEFAULT NULL,
+    battery_mv INT DEFAULT NULL,
+    voltage_level TINYINT DEFAULT NULL,
+    gsm_signal TINYINT DEFAULT NULL,
+    terminal_info INT DEFAULT NULL,
+    external_mv INT DEFAULT NULL,
+    latitude DOUBLE DEFAULT NULL,
+    longitude DOUBLE DEFAULT NULL,
+    speed_kph DOUBLE DEFAULT NULL,
+    last_heartbeat DATETIME DEFAULT NULL,
+    last_fix DATETIME DEFAULT NULL,
+    updated_at DATETIME DEFAULT NULL
+    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Devices we operate and the tenant that owns each; loaded into memory by DeviceRegistry
+CREATE TABLE IF NOT EXISTS device_registry (
+    imei VARCHAR(32) NOT NULL PRIMARY KEY,
+    tenant VARCHAR(64) NOT NULL,
+    label VARCHAR(100) DEFAULT NULL,
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    KEY idx_tenant (tenant)
+    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Heatmap density per 64x64 tile cell per day, upserted by DensityAggregator
+CREATE TABLE IF NOT EXISTS density_cells (
+    zoom TINYINT NOT NULL,
+    tile_x INT NOT NULL,
+    tile_y INT NOT NULL,
+    fix_date DATE NOT NULL,
+    cell SMALLINT NOT NULL,
+    fixes INT NOT NULL DEFAULT 0,
+    dwell_s BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (zoom, tile_x, tile_y, fix_date, cell)
+    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
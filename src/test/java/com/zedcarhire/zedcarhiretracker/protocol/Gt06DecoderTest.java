@@ -0,0 +1,161 @@
+package com.zedcarhire.zedcarhiretracker.protocol;
+
+import com.zedcarhire.zedcarhiretracker.sim.Gt06Frames;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Gt06DecoderTest {
+
+    private static final LocalDateTime FIX_TIME = LocalDateTime.of(2025, 3, 14, 9, 26, 53);
+
+    // Where Gt06Frames.info puts the latitude: 79 79 LEN LEN 94 SUB VENDOR [DATE 6] [SATS]
+    private static final int VENDOR_GPS_OFFSET = 14;
+
+    private final Gt06Decoder decoder = new Gt06Decoder();
+
+    private static byte[] hex(String s) {
+        byte[] b = new byte[s.length() / 2];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) Integer.parseInt(s.substring(i * 2, i * 2 + 2), 16);
+        }
+        return b;
+    }
+
+    private static byte[] vendorFix(LocalDateTime time, int serial) {
+        return Gt06Frames.info(0x33, time, -15.4167, 28.2833, 60, 90, serial);
+    }
+
+    @Test
+    void externalVoltageIsReadInHundredthsOfAVolt() {
+        // 0x00, content 04 D1 = 12.33 V
+        Decoded d = decoder.decode(hex("79790008940004D10005FAB30D0A"), new DecoderSession("354778345253671"));
+
+        assertNotNull(d);
+        assertEquals("INFO", d.type);
+        assertEquals(0x00, (int) d.infoType);
+        assertEquals(12330, (int) d.externalMv);
+        assertNull(d.latitude);
+    }
+
+    @Test
+    void statusSyncDoorAndSimIdentityAreInfoWithoutPosition() {
+        String[] frames = {
+                "797900169404414C4D313D43383B535441313D43303B000725E10D0A",               // 0x04 "ALM1=C8;STA1=C0;"
+                "797900079405010006D2190D0A",                                             // 0x05 door open
+                "7979001E940A035477834525367106450101234567898926001234567890000833CC0D0A" // 0x0A IMEI/IMSI/ICCID
+        };
+        int[] subTypes = {0x04, 0x05, 0x0A};
+
+        for (int i = 0; i < frames.length; i++) {
+            Decoded d = decoder.decode(hex(frames[i]), new DecoderSession("354778345253671"));
+            assertNotNull(d);
+            assertEquals("INFO", d.type);
+            assertEquals(subTypes[i], (int) d.infoType);
+            assertNull(d.externalMv);
+            assertNull(d.latitude);
+        }
+    }
+
+    @Test
+    void vendorSubTypeCarriesPositionAndFrameTime() {
+        Decoded d = decoder.decode(vendorFix(FIX_TIME, 1), new DecoderSession("354778345253671"));
+
+        assertNotNull(d);
+        assertEquals("GPS", d.type);
+        assertEquals(0x33, (int) d.infoType);
+        assertEquals(-15.4167, d.latitude, 1e-6);
+        assertEquals(28.2833, d.longitude, 1e-6);
+        assertEquals(60.0, d.speedKph, 0.0);
+        assertEquals(90, (int) d.course);
+        assertEquals(FIX_TIME, d.gpsTime);
+    }
+
+    @Test
+    void dateTooFarAheadFallsBackToReceiveTime() {
+        LocalDateTime before = LocalDateTime.now();
+        Decoded d = decoder.decode(vendorFix(before.plusDays(3), 1), null);
+
+        assertNotNull(d);
+        assertTrue(!d.gpsTime.isBefore(before) && !d.gpsTime.isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void vendorSubTypeWithoutPositionIsRejected() {
+        byte[] frame = Gt06Frames.info(0x33, new byte[20], 1);
+
+        assertNull(decoder.decode(frame, new DecoderSession("354778345253671")));
+    }
+
+    @Test
+    void offsetIsLearnedAfterTwoConsistentFrames() {
+        DecoderSession session = new DecoderSession("354778345253671");
+
+        decoder.decode(vendorFix(FIX_TIME, 1), session);
+        assertEquals(-1, session.learnedGpsOffset(0x33));
+
+        decoder.decode(vendorFix(FIX_TIME.plusSeconds(10), 2), session);
+        assertEquals(VENDOR_GPS_OFFSET, session.learnedGpsOffset(0x33));
+    }
+
+    @Test
+    void singleHitAtAnotherOffsetIsNotLearned() {
+        DecoderSession session = new DecoderSession("354778345253671");
+        session.gpsFoundAt(0x33, 20);
+
+        decoder.decode(vendorFix(FIX_TIME, 1), session);
+
+        assertEquals(-1, session.learnedGpsOffset(0x33));
+    }
+
+    @Test
+    void learnedOffsetThatStopsMatchingIsForgotten() {
+        DecoderSession session = new DecoderSession("354778345253671");
+        session.gpsFoundAt(0x33, VENDOR_GPS_OFFSET + 1);
+        session.gpsFoundAt(0x33, VENDOR_GPS_OFFSET + 1);
+
+        Decoded d = decoder.decode(vendorFix(FIX_TIME, 1), session);
+
+        // Falls back to the scan, which still finds the fix, and starts counting again
+        assertNotNull(d);
+        assertEquals(-15.4167, d.latitude, 1e-6);
+        assertEquals(-1, session.learnedGpsOffset(0x33));
+    }
+
+    @Test
+    void newLoginOnTheConnectionDropsLearnedOffsets() {
+        DecoderSession session = new DecoderSession("354778345253671");
+        decoder.decode(vendorFix(FIX_TIME, 1), session);
+        decoder.decode(vendorFix(FIX_TIME, 2), session);
+
+        session.setImei("354778345253671");
+        assertEquals(VENDOR_GPS_OFFSET, session.learnedGpsOffset(0x33));
+
+        session.setImei("869066040000001");
+        assertEquals(-1, session.learnedGpsOffset(0x33));
+    }
+
+    // Expected frames were computed with CRC-16/X-25, which gives 0x906E for "123456789"
+    // and 8C DD for the login example in the GT06 protocol document
+    @Test
+    void commandFrameMatchesReference() {
+        assertArrayEquals(hex("787815800F000000014459442C30303030303023000189A70D0A"),
+                Gt06Decoder.buildCommand(1, "DYD,000000#", 1));
+        assertArrayEquals(hex("787810800A0A0B0C0D57484552452312342B440D0A"),
+                Gt06Decoder.buildCommand(0x0A0B0C0D, "WHERE#", 0x1234));
+    }
+
+    @Test
+    void commandLengthMustFitTheShortFrame() {
+        // LEN counts protocol, command length, flag, text, serial and CRC: 10 bytes + text
+        assertEquals(0xFF + 5, Gt06Decoder.buildCommand(1, "x".repeat(0xFF - 10), 1).length);
+        assertThrows(IllegalArgumentException.class, () -> Gt06Decoder.buildCommand(1, "x".repeat(0xFF - 9), 1));
+    }
+}
@@ -0,0 +1,142 @@
+package com.zedcarhire.zedcarhiretracker.rules;
+
+import com.zedcarhire.zedcarhiretracker.protocol.Decoded;
+import com.zedcarhire.zedcarhiretracker.service.DeviceRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RuleEngineTest {
+
+    private static final String IMEI = "354000000000001";
+
+    // Engine clock; tests count from an arbitrary epoch
+    private static final long T0 = 1_700_000_000_000L;
+
+    private RuleEngine engine;
+    private long now = T0;
+
+    private RuleEngine start(String... rules) throws Exception {
+        Path file = Files.createTempFile("alerts", ".rules");
+        Files.write(file, List.of(rules));
+        file.toFile().deleteOnExit();
+
+        engine = new RuleEngine(new DeviceRegistry(null),
+                new StaticListableBeanFactory().getBeanProvider(AlertListener.class));
+        ReflectionTestUtils.setField(engine, "enabled", true);
+        ReflectionTestUtils.setField(engine, "file", file.toString());
+        ReflectionTestUtils.setField(engine, "queueSize", 100);
+        ReflectionTestUtils.setField(engine, "historySize", 100);
+        engine.clock = () -> now;
+        engine.start();
+        return engine;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) engine.stop();
+    }
+
+    private static Decoded speed(double kph) {
+        Decoded d = new Decoded();
+        d.speedKph = kph;
+        return d;
+    }
+
+    private long raised() {
+        return ((Number) engine.stats().get("raised")).longValue();
+    }
+
+    private void at(long ms, double kph) {
+        now = T0 + ms;
+        engine.evaluate(IMEI, speed(kph));
+    }
+
+    @Test
+    void firesOncePerEpisodeAfterTheDebounce() throws Exception {
+        start("overspeed when speed > 120 for 30s");
+
+        at(0, 130);
+        at(29_000, 130);
+        assertEquals(0, raised());
+        at(30_000, 130);
+        assertEquals(1, raised());
+        at(60_000, 130);
+        assertEquals(1, raised());
+
+        // Condition clears, then a new episode must hold for 30s again
+        at(61_000, 80);
+        at(62_000, 130);
+        at(80_000, 130);
+        assertEquals(1, raised());
+        at(92_000, 130);
+        assertEquals(2, raised());
+    }
+
+    @Test
+    void packetsWithoutTheFieldDoNotResetTheDebounce() throws Exception {
+        start("overspeed when speed > 120 for 30s");
+
+        at(0, 130);
+        now = T0 + 15_000;
+        engine.evaluate(IMEI, new Decoded());   // heartbeat: no speed
+        at(30_000, 130);
+        assertEquals(1, raised());
+    }
+
+    @Test
+    void episodeSuppressedByCooldownFiresWhenTheCooldownEnds() throws Exception {
+        start("overspeed when speed > 120 cooldown 10m");
+
+        at(0, 130);
+        assertEquals(1, raised());
+        at(60_000, 80);
+
+        // New episode inside the cooldown: suppressed, but stays armed
+        at(120_000, 130);
+        at(300_000, 130);
+        assertEquals(1, raised());
+        at(600_000, 130);
+        assertEquals(2, raised());
+        at(700_000, 130);
+        assertEquals(2, raised());
+    }
+
+    @Test
+    void silenceRulesFireOnceUntilTheDeviceReportsAgain() throws Exception {
+        start("no_report silent 30m cooldown 1h");
+
+        at(0, 10);
+        now = T0 + 29 * 60_000;
+        engine.sweep();
+        assertEquals(0, raised());
+        now = T0 + 31 * 60_000;
+        engine.sweep();
+        engine.sweep();
+        assertEquals(1, raised());
+
+        // Reports again, then goes quiet inside the cooldown: alerts once the cooldown ends
+        at(40 * 60_000, 10);
+        now = T0 + 80 * 60_000;
+        engine.sweep();
+        assertEquals(1, raised());
+        now = T0 + 92 * 60_000;
+        engine.sweep();
+        assertEquals(2, raised());
+    }
+
+    @Test
+    void tenantRulesOnlyApplyToTheirGroup() throws Exception {
+        start("acme_speed group=acme when speed > 50");
+
+        at(0, 100);
+        assertEquals(0, raised());   // unregistered device has no tenant
+    }
+}
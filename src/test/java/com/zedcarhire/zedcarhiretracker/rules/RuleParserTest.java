@@ -0,0 +1,128 @@
+package com.zedcarhire.zedcarhiretracker.rules;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuleParserTest {
+
+    private static Rule parse(String line) {
+        List<Rule> rules = new RuleParser().parse(List.of(line));
+        assertEquals(1, rules.size());
+        return rules.get(0);
+    }
+
+    private static double[] ctx(int slot, double value, Object... more) {
+        double[] ctx = Fields.empty();
+        ctx[slot] = value;
+        for (int i = 0; i < more.length; i += 2) {
+            ctx[(Integer) more[i]] = ((Number) more[i + 1]).doubleValue();
+        }
+        return ctx;
+    }
+
+    @Test
+    void parsesOptionsAndDurations() {
+        Rule r = parse("overspeed when speed > 120 for 30s cooldown 10m");
+        assertEquals("overspeed", r.name());
+        assertEquals("*", r.group());
+        assertEquals(30_000, r.forMs());
+        assertEquals(600_000, r.cooldownMs());
+        assertFalse(r.isSilence());
+        assertEquals(1 << Fields.SPEED, r.mask());
+
+        assertEquals(500, RuleParser.duration("500ms"));
+        assertEquals(7_200_000, RuleParser.duration("2h"));
+        assertEquals(86_400_000, RuleParser.duration("1d"));
+    }
+
+    @Test
+    void parsesGroupAndSilenceRules() {
+        Rule r = parse("no_report group=acme silent 30m cooldown 6h");
+        assertEquals("acme", r.group());
+        assertTrue(r.isSilence());
+        assertEquals(1_800_000, r.silentMs());
+        assertEquals(21_600_000, r.cooldownMs());
+    }
+
+    @Test
+    void comparisonsTreatUnreportedFieldsAsFalse() {
+        assertTrue(parse("a when speed > 120").condition().test(ctx(Fields.SPEED, 121)));
+        assertFalse(parse("a when speed > 120").condition().test(ctx(Fields.SPEED, 120)));
+        assertTrue(parse("a when speed >= 120").condition().test(ctx(Fields.SPEED, 120)));
+        assertTrue(parse("a when speed <= -1.5").condition().test(ctx(Fields.SPEED, -2)));
+        assertTrue(parse("a when acc == 1").condition().test(ctx(Fields.ACC, 1)));
+        assertTrue(parse("a when acc != 1").condition().test(ctx(Fields.ACC, 0)));
+
+        // Never reported (NaN): neither equal nor different
+        assertFalse(parse("a when acc == 1").condition().test(Fields.empty()));
+        assertFalse(parse("a when acc != 1").condition().test(Fields.empty()));
+    }
+
+    @Test
+    void andBindsTighterThanOrAndParenthesesOverride() {
+        Condition loose = parse("a when acc == 1 or speed > 100 and gsm < 1").condition();
+        Condition grouped = parse("a when (acc == 1 or speed > 100) and gsm < 1").condition();
+        double[] c = ctx(Fields.ACC, 1, Fields.SPEED, 0, Fields.GSM, 3);
+        assertTrue(loose.test(c));
+        assertFalse(grouped.test(c));
+
+        Condition negated = parse("a when not (hour >= 22 or hour < 5)").condition();
+        assertTrue(negated.test(ctx(Fields.HOUR, 12)));
+        assertFalse(negated.test(ctx(Fields.HOUR, 23)));
+    }
+
+    @Test
+    void maskCoversEveryFieldRead() {
+        Rule r = parse("after_hours when acc == 1 and (hour >= 22 or hour < 5)");
+        assertEquals((1 << Fields.ACC) | (1 << Fields.HOUR), r.mask());
+    }
+
+    @Test
+    void skipsCommentsAndBlankLinesAndNumbersRulesInOrder() {
+        List<Rule> rules = new RuleParser().parse(List.of(
+                "# header",
+                "",
+                "a when speed > 1   # trailing comment",
+                "b silent 5m"));
+        assertEquals(2, rules.size());
+        assertEquals(0, rules.get(0).id());
+        assertEquals(1, rules.get(1).id());
+        assertEquals("a when speed > 1", rules.get(0).source());
+    }
+
+    @Test
+    void errorsNameTheLine() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () ->
+                new RuleParser().parse(List.of("a when speed > 1", "b when sped > 1")));
+        assertTrue(e.getMessage().startsWith("line 2:"), e.getMessage());
+        assertTrue(e.getMessage().contains("unknown field 'sped'"), e.getMessage());
+    }
+
+    @Test
+    void rejectsMalformedRules() {
+        RuleParser p = new RuleParser();
+        assertThrows(IllegalArgumentException.class, () -> p.parse(List.of("a speed > 1")));
+        assertThrows(IllegalArgumentException.class, () -> p.parse(List.of("a when speed >")));
+        assertThrows(IllegalArgumentException.class, () -> p.parse(List.of("a when speed > fast")));
+        assertThrows(IllegalArgumentException.class, () -> p.parse(List.of("a when speed ~ 1")));
+        assertThrows(IllegalArgumentException.class, () -> p.parse(List.of("a when (speed > 1")));
+        assertThrows(IllegalArgumentException.class, () -> p.parse(List.of("a when speed > 1 for 10x")));
+        assertThrows(IllegalArgumentException.class, () -> p.parse(List.of("a silent 5m for 1s")));
+        assertThrows(IllegalArgumentException.class, () -> p.parse(List.of("a when speed > 1 extra")));
+        assertThrows(IllegalArgumentException.class, () -> p.parse(List.of("bad/name when speed > 1")));
+    }
+
+    @Test
+    void shippedRulesParse() throws Exception {
+        try (var in = getClass().getClassLoader().getResourceAsStream("rules/alerts.rules")) {
+            List<String> lines = new String(in.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8).lines().toList();
+            assertFalse(new RuleParser().parse(lines).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DensityAggregatorTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 14);
+
+    // Lusaka city centre
+    private static final double LAT = -15.4167;
+    private static final double LNG = 28.2833;
+
+    private static void assertRow(Object[] row, int zoom, int tileX, int tileY, int cellX, int cellY) {
+        assertEquals(zoom, row[0], "zoom");
+        assertEquals(tileX, row[1], "tile x");
+        assertEquals(tileY, row[2], "tile y");
+        assertEquals(Date.valueOf(DAY), row[3], "day");
+        assertEquals(cellY * DensityAggregator.GRID + cellX, row[4], "cell");
+    }
+
+    @Test
+    void keyUnpacksToTheWebMercatorTileAndCell() {
+        long day = DAY.toEpochDay();
+
+        assertRow(DensityAggregator.row(DensityAggregator.key(11, day, LAT, LNG), 1, 0), 11, 1184, 1112, 57, 50);
+        assertRow(DensityAggregator.row(DensityAggregator.key(14, day, LAT, LNG), 1, 0), 14, 9479, 8902, 13, 16);
+        assertRow(DensityAggregator.row(DensityAggregator.key(0, day, LAT, LNG), 1, 0), 0, 0, 0, 37, 34);
+    }
+
+    @Test
+    void keyFieldsDoNotOverlap() {
+        // Largest zoom, a late day and the far south-east corner use every bit of each field
+        long day = LocalDate.of(2300, 12, 31).toEpochDay();
+        long key = DensityAggregator.key(15, day, -89, 180);
+
+        assertEquals(15, key >>> 59);
+        assertEquals(day, (key >>> 42) & 0x1FFFF);
+        assertEquals((1L << 21) - 1, (key >>> 21) & 0x1FFFFF);
+        assertEquals((1L << 21) - 1, key & 0x1FFFFF);
+    }
+
+    @Test
+    void cellsOutsideTheMercatorRangeAreClamped() {
+        long day = DAY.toEpochDay();
+
+        assertRow(DensityAggregator.row(DensityAggregator.key(8, day, 89.9, -180), 1, 0), 8, 0, 0, 0, 0);
+        assertRow(DensityAggregator.row(DensityAggregator.key(8, day, -89.9, 180), 1, 0), 8, 255, 255, 63, 63);
+    }
+
+    @Test
+    void rowCarriesCounts() {
+        Object[] row = DensityAggregator.row(DensityAggregator.key(11, DAY.toEpochDay(), LAT, LNG), 3_000_000_000L, 7200);
+
+        assertEquals(3_000_000_000L, row[5]);
+        assertEquals(7200L, row[6]);
+    }
+}
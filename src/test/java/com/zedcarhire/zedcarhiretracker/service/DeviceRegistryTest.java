@@ -0,0 +1,96 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import com.zedcarhire.zedcarhiretracker.model.RegisteredDevice;
+import com.zedcarhire.zedcarhiretracker.repo.DeviceRegistryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceRegistryTest {
+
+    private static final String ACME_CAR = "354000000000001";
+    private static final String OTHER_CAR = "354000000000002";
+
+    // null = the database is down
+    private List<RegisteredDevice> rows;
+
+    private DeviceRegistry registry(boolean enforce) {
+        DeviceRegistryRepository repo = (DeviceRegistryRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{DeviceRegistryRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findAll")) throw new UnsupportedOperationException(method.getName());
+                    if (rows == null) throw new IllegalStateException("connection refused");
+                    return rows;
+                });
+        DeviceRegistry registry = new DeviceRegistry(repo);
+        ReflectionTestUtils.setField(registry, "enforce", enforce);
+        registry.load();
+        return registry;
+    }
+
+    private static RegisteredDevice device(String imei, String tenant) {
+        RegisteredDevice d = new RegisteredDevice();
+        d.setImei(imei);
+        d.setTenant(tenant);
+        return d;
+    }
+
+    @Test
+    void scopedKeysSeeOnlyTheirTenant() {
+        rows = List.of(device(ACME_CAR, "acme"), device(OTHER_CAR, "other"));
+        DeviceRegistry registry = registry(true);
+
+        assertTrue(registry.isLoaded());
+        assertTrue(registry.canSee("acme", ACME_CAR));
+        assertFalse(registry.canSee("acme", OTHER_CAR));
+        assertTrue(registry.canSee(DeviceRegistry.ALL_TENANTS, OTHER_CAR));
+        assertTrue(registry.canSee(null, OTHER_CAR));
+        assertEquals(List.of(ACME_CAR), registry.visible("acme", List.of(ACME_CAR, OTHER_CAR)));
+        assertEquals(List.of(ACME_CAR), registry.filter("acme", List.of(ACME_CAR, OTHER_CAR), imei -> imei));
+        assertTrue(registry.accepts(OTHER_CAR));
+        assertFalse(registry.accepts("354000000000009"));
+    }
+
+    @Test
+    void failedStartupLoadFailsClosed() {
+        rows = null;
+        DeviceRegistry registry = registry(true);
+
+        assertFalse(registry.isLoaded());
+        assertFalse(registry.canSee("acme", ACME_CAR));
+        assertTrue(registry.visible("acme", List.of(ACME_CAR)).isEmpty());
+        assertTrue(registry.filter("acme", List.of(ACME_CAR), imei -> imei).isEmpty());
+        assertFalse(registry.accepts(ACME_CAR));
+        assertTrue(registry.canSee(DeviceRegistry.ALL_TENANTS, ACME_CAR));
+
+        // Recovers on the next scheduled reload
+        rows = List.of(device(ACME_CAR, "acme"));
+        registry.reload();
+        assertTrue(registry.canSee("acme", ACME_CAR));
+        assertTrue(registry.accepts(ACME_CAR));
+    }
+
+    @Test
+    void failedReloadKeepsTheLastSnapshot() {
+        rows = new ArrayList<>(List.of(device(ACME_CAR, "acme")));
+        DeviceRegistry registry = registry(true);
+        rows = null;
+        registry.reload();
+        assertTrue(registry.canSee("acme", ACME_CAR));
+    }
+
+    @Test
+    void emptyRegistryOnlyAcceptsLoginsWhenNotEnforced() {
+        rows = List.of();
+        assertFalse(registry(true).accepts(ACME_CAR));
+        DeviceRegistry open = registry(false);
+        assertTrue(open.accepts(ACME_CAR));
+        assertFalse(open.canSee("acme", ACME_CAR));
+    }
+}
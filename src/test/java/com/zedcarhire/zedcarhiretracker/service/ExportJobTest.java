@@ -0,0 +1,88 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportJobTest {
+
+    private static ExportJob job() {
+        LocalDateTime to = LocalDateTime.of(2025, 1, 31, 23, 59);
+        return new ExportJob("j1", "csv", List.of("354000000000001", "354000000000002"), to.minusDays(30), to, null);
+    }
+
+    @Test
+    void runsAndFinishes() {
+        ExportJob job = job();
+        job.running();
+        job.running();
+
+        assertEquals(ExportJob.Status.RUNNING, job.getStatus());
+        assertTrue(job.done(Path.of("export-j1.csv.gz"), 42));
+        assertEquals(ExportJob.Status.DONE, job.getStatus());
+        assertEquals(42, job.getBytes());
+    }
+
+    @Test
+    void failureIsFinal() {
+        ExportJob job = job();
+        job.running();
+
+        assertTrue(job.failed("export of 354000000000001 failed: disk full"));
+        job.running();
+        assertFalse(job.done(Path.of("export-j1.csv.gz"), 42));
+        assertFalse(job.failed("assembly failed"));
+
+        assertEquals(ExportJob.Status.FAILED, job.getStatus());
+        assertEquals("export of 354000000000001 failed: disk full", job.getError());
+        assertNull(job.getFile());
+    }
+
+    @Test
+    void finishedJobCannotFail() {
+        ExportJob job = job();
+        job.running();
+        job.done(Path.of("export-j1.csv.gz"), 42);
+
+        assertFalse(job.failed("late failure"));
+        assertEquals(ExportJob.Status.DONE, job.getStatus());
+        assertNull(job.getError());
+    }
+
+    @Test
+    void queuedJobCanFailButNotFinish() {
+        assertFalse(job().done(Path.of("export-j1.csv.gz"), 42));
+        assertTrue(job().failed("export queue is full"));
+    }
+
+    @Test
+    void repeatedImeisAreExportedOnce() throws Exception {
+        Path dir = Files.createTempDirectory("exports");
+        ExportService exports = new ExportService(null);
+        ReflectionTestUtils.setField(exports, "dir", dir.toString());
+        ReflectionTestUtils.setField(exports, "workers", 1);
+        ReflectionTestUtils.setField(exports, "queueSize", 10);
+        ReflectionTestUtils.setField(exports, "maxImeis", 5);
+        ReflectionTestUtils.setField(exports, "timeZone", "Africa/Lusaka");
+        exports.start();
+        try {
+            LocalDateTime to = LocalDateTime.of(2025, 1, 31, 23, 59);
+            ExportJob job = exports.submit(List.of("354000000000001", "354000000000002", "354000000000001"),
+                    to.minusDays(30), to, "csv", null);
+
+            assertEquals(List.of("354000000000001", "354000000000002"), job.getImeis());
+            assertEquals(2, job.getPartsTotal());
+        } finally {
+            exports.stop();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExportServiceTest {
+
+    @Test
+    void csvQuotesOnlyFieldsThatNeedIt() {
+        assertEquals("354000000000001", ExportService.csv("354000000000001"));
+        assertEquals("\"a,b\"", ExportService.csv("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", ExportService.csv("say \"hi\""));
+        assertEquals("\"two\nlines\"", ExportService.csv("two\nlines"));
+        assertEquals("", ExportService.csv(null));
+    }
+
+    @Test
+    void xmlEscapesMarkup() {
+        assertEquals("354000000000001", ExportService.xml("354000000000001"));
+        assertEquals("&lt;/name&gt;&lt;x a=&quot;1&quot; b=&apos;2&apos;&gt;&amp;",
+                ExportService.xml("</name><x a=\"1\" b='2'>&"));
+    }
+}
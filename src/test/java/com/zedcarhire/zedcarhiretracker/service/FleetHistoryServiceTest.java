@@ -0,0 +1,93 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import com.zedcarhire.zedcarhiretracker.model.TrackPoint;
+import com.zedcarhire.zedcarhiretracker.repo.TrackerDataRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FleetHistoryServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 8, 0);
+    private static final LocalDateTime END = START.plusHours(10);
+    private static final List<String> IMEIS = List.of("354000000000001", "354000000000002", "354000000000003");
+
+    // The fake repository returns this many rows per IMEI asked for, cut at the query's limit
+    private static final int POINTS_PER_IMEI = 10;
+
+    private final List<Integer> limits = new ArrayList<>();
+    private FleetHistoryService fleet;
+
+    @BeforeEach
+    void setUp() {
+        TrackerDataRepository repo = (TrackerDataRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{TrackerDataRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("fleetHistoryPoints")) throw new UnsupportedOperationException(method.getName());
+                    @SuppressWarnings("unchecked")
+                    List<String> imeis = (List<String>) args[0];
+                    int limit = ((Pageable) args[3]).getPageSize();
+                    synchronized (limits) {
+                        limits.add(limit);
+                    }
+                    List<TrackPoint> rows = new ArrayList<>();
+                    for (String imei : imeis) {
+                        for (int i = 0; i < POINTS_PER_IMEI && rows.size() < limit; i++) {
+                            rows.add(new TrackPoint(imei, -15.4, 28.3, 0, 0, 1, null, null, START.plusMinutes(i)));
+                        }
+                    }
+                    return rows;
+                });
+
+        RecentTracks recent = new RecentTracks(null);
+        ReflectionTestUtils.setField(recent, "enabled", false);
+
+        fleet = new FleetHistoryService(repo, recent, null);
+        ReflectionTestUtils.setField(fleet, "batchSize", 2);
+        ReflectionTestUtils.setField(fleet, "workers", 1);
+        ReflectionTestUtils.setField(fleet, "maxRows", 30);
+        fleet.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fleet.stop();
+    }
+
+    @Test
+    void tracksAreGroupedByImeiInRequestOrder() {
+        Map<String, List<TrackPoint>> tracks = fleet.load(IMEIS, START, END);
+
+        assertEquals(IMEIS, new ArrayList<>(tracks.keySet()));
+        for (String imei : IMEIS) {
+            assertEquals(POINTS_PER_IMEI, tracks.get(imei).size());
+            assertTrue(tracks.get(imei).stream().allMatch(p -> p.imei().equals(imei)));
+        }
+    }
+
+    @Test
+    void queriesFetchAtMostOneRowPastTheLimit() {
+        fleet.load(IMEIS, START, END);
+
+        assertEquals(List.of(31, 31), limits);
+    }
+
+    @Test
+    void tooManyPointsIsRefused() {
+        ReflectionTestUtils.setField(fleet, "maxRows", 29);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> fleet.load(IMEIS, START, END));
+        assertTrue(e.getMessage().contains("29"));
+    }
+}
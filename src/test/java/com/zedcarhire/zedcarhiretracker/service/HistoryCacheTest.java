@@ -0,0 +1,98 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryCacheTest {
+
+    private static final String IMEI = "354000000000001";
+    private static final LocalDateTime DAY = LocalDateTime.now().minusDays(2).withHour(0).withMinute(0).withSecond(0).withNano(0);
+
+    private HistoryCache cache;
+    private final List<String> rows = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache = new HistoryCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxRows", 100L);
+        ReflectionTestUtils.setField(cache, "settleMinutes", 15L);
+        rows.add("a");
+        rows.add("b");
+    }
+
+    private HistoryCache.Entry<String> day(String imei) {
+        return cache.get("history", imei, DAY, DAY.plusDays(1), () -> {
+            loads.incrementAndGet();
+            return List.copyOf(rows);
+        });
+    }
+
+    @Test
+    void closedRangesAreServedFromMemory() {
+        HistoryCache.Entry<String> first = day(IMEI);
+        assertSame(first, day(IMEI));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void lateFixInsideTheRangeEvictsIt() {
+        HistoryCache.Entry<String> before = day(IMEI);
+
+        rows.add("late");
+        cache.invalidate(IMEI, DAY.plusHours(6));
+
+        HistoryCache.Entry<String> after = day(IMEI);
+        assertEquals(2, loads.get());
+        assertEquals(3, after.getRows().size());
+        assertNotEquals(before.getEtag(), after.getEtag());
+    }
+
+    @Test
+    void fixesOutsideTheRangeOrForOtherDevicesKeepIt() {
+        day(IMEI);
+        day("354000000000002");
+
+        cache.invalidate(IMEI, DAY.plusDays(1).plusMinutes(1));
+        cache.invalidate(IMEI, DAY.minusMinutes(1));
+        cache.invalidate("354000000000003", DAY.plusHours(6));
+        cache.invalidate(IMEI, LocalDateTime.now());
+        day(IMEI);
+        assertEquals(2, loads.get());
+
+        cache.invalidate("354000000000002", DAY.plusHours(1));
+        day("354000000000002");
+        day(IMEI);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void loadOverlappingALateFixIsNotCached() {
+        cache.get("history", IMEI, DAY, DAY.plusDays(1), () -> {
+            loads.incrementAndGet();
+            cache.invalidate(IMEI, DAY.plusHours(1));
+            return List.copyOf(rows);
+        });
+        day(IMEI);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void lastModifiedIsWhenTheRowsWereRead() {
+        long before = System.currentTimeMillis();
+        HistoryCache.Entry<String> entry = day(IMEI);
+        assertTrue(entry.getLastModified() >= before);
+    }
+}
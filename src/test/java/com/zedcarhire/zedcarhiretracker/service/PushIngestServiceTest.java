@@ -0,0 +1,187 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.zedcarhire.zedcarhiretracker.model.RegisteredDevice;
+import com.zedcarhire.zedcarhiretracker.model.TrackerData;
+import com.zedcarhire.zedcarhiretracker.repo.DeviceRegistryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PushIngestServiceTest {
+
+    private static final String ACME_CAR = "354000000000001";
+    private static final String OTHER_CAR = "354000000000002";
+
+    // Chunks handed to saveBatch, in order
+    private final List<List<String>> saved = new ArrayList<>();
+    // saveBatch call numbers (0-based) that throw
+    private final List<Integer> failingChunks = new ArrayList<>();
+
+    private PushIngestService push;
+
+    @BeforeEach
+    void setUp() {
+        TrackerService trackers = new TrackerService(null, null, null, null, null, null, null) {
+            @Override
+            public void saveBatch(List<TrackerData> fixes) {
+                int call = saved.size();
+                List<String> imeis = new ArrayList<>();
+                for (TrackerData td : fixes) imeis.add(td.getImei());
+                saved.add(imeis);
+                if (failingChunks.contains(call)) throw new IllegalStateException("deadlock");
+            }
+        };
+
+        DeviceRegistryRepository repo = (DeviceRegistryRepository) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{DeviceRegistryRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findAll")) throw new UnsupportedOperationException(method.getName());
+                    return List.of(device(ACME_CAR, "acme"), device(OTHER_CAR, "other"));
+                });
+        DeviceRegistry registry = new DeviceRegistry(repo);
+        ReflectionTestUtils.setField(registry, "enforce", true);
+        registry.load();
+
+        ObjectMapper json = new ObjectMapper().registerModule(new JavaTimeModule());
+        push = new PushIngestService(trackers, registry, json);
+        ReflectionTestUtils.setField(push, "chunkSize", 2);
+        ReflectionTestUtils.setField(push, "maxRecords", 100);
+        ReflectionTestUtils.setField(push, "maxErrors", 100);
+        ReflectionTestUtils.setField(push, "maxFutureMinutes", 10L);
+    }
+
+    private static RegisteredDevice device(String imei, String tenant) {
+        RegisteredDevice d = new RegisteredDevice();
+        d.setImei(imei);
+        d.setTenant(tenant);
+        return d;
+    }
+
+    private static String fix(String imei, double lat) {
+        return "{\"imei\":\"" + imei + "\",\"latitude\":" + lat + ",\"longitude\":28.3,\"speedKph\":40," +
+                "\"gpsTime\":\"2025-01-01T10:00:00\"}";
+    }
+
+    private PushIngestService.Summary ingest(String body, String tenant) throws Exception {
+        return push.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), tenant);
+    }
+
+    @Test
+    void jsonArrayAndNdjsonAreReadAlike() throws Exception {
+        String a = fix(ACME_CAR, -15.4), b = fix(OTHER_CAR, -15.5), c = fix(ACME_CAR, -15.6);
+
+        PushIngestService.Summary array = ingest("[" + a + "," + b + "," + c + "]", null);
+        PushIngestService.Summary ndjson = ingest(a + "\n" + b + "\n" + c + "\n", null);
+
+        for (PushIngestService.Summary s : List.of(array, ndjson)) {
+            assertTrue(s.ok());
+            assertEquals(3, s.received());
+            assertEquals(3, s.accepted());
+            assertEquals(0, s.rejected());
+            assertNull(s.aborted());
+        }
+        // chunkSize 2: two inserts per request
+        assertEquals(List.of(List.of(ACME_CAR, OTHER_CAR), List.of(ACME_CAR),
+                List.of(ACME_CAR, OTHER_CAR), List.of(ACME_CAR)), saved);
+    }
+
+    @Test
+    void invalidRecordsAreRejectedByIndexAndTheRestStored() throws Exception {
+        String body = "[" + String.join(",",
+                fix(ACME_CAR, -15.4),
+                fix(ACME_CAR, -95),                                   // 1: out of range
+                "{\"imei\":\"" + ACME_CAR + "\",\"latitude\":\"north\"}", // 2: wrong type
+                fix("354000000000009", -15.4),                         // 3: not registered
+                fix(OTHER_CAR, -15.4),                                 // 4: other tenant
+                fix(ACME_CAR, -15.5)) + "]";
+
+        PushIngestService.Summary s = ingest(body, "acme");
+
+        assertFalse(s.ok());
+        assertEquals(6, s.received());
+        assertEquals(2, s.accepted());
+        assertEquals(4, s.rejected());
+        assertNull(s.aborted());
+        assertEquals(List.of(1, 2, 3, 4), s.errors().stream().map(PushIngestService.Rejection::index).toList());
+        assertEquals("coordinates out of range", s.errors().get(0).error());
+        assertTrue(s.errors().get(1).error().startsWith("invalid record"));
+        assertEquals("unknown_device", s.errors().get(2).error());
+        assertEquals("unknown_device", s.errors().get(3).error());
+        assertEquals(List.of(List.of(ACME_CAR, ACME_CAR)), saved);
+    }
+
+    @Test
+    void malformedTailAbortsButKeepsWhatCameBefore() throws Exception {
+        PushIngestService.Summary s = ingest(fix(ACME_CAR, -15.4) + "\n" + fix(OTHER_CAR, -15.5) + "\n{\"imei\": \"35", null);
+
+        assertFalse(s.ok());
+        assertEquals(2, s.accepted());
+        assertEquals(0, s.rejected());
+        assertEquals("malformed JSON after record 2", s.aborted());
+        assertEquals(List.of(List.of(ACME_CAR, OTHER_CAR)), saved);
+    }
+
+    @Test
+    void syntaxErrorInsideAnArrayAborts() throws Exception {
+        String broken = "{\"imei\":\"" + ACME_CAR + "\" \"latitude\":-15.5}";
+
+        PushIngestService.Summary s = ingest("[" + fix(ACME_CAR, -15.4) + "," + broken + "," + fix(ACME_CAR, -15.6) + "]", null);
+
+        assertEquals(1, s.accepted());
+        assertEquals(0, s.rejected());
+        assertEquals("malformed JSON after record 1", s.aborted());
+    }
+
+    @Test
+    void failedChunkIsReportedPerRecord() throws Exception {
+        failingChunks.add(1);
+        String body = String.join("\n", fix(ACME_CAR, -15.4), fix(OTHER_CAR, -15.4),
+                fix(ACME_CAR, -15.5), fix(OTHER_CAR, -15.5), fix(ACME_CAR, -15.6));
+
+        PushIngestService.Summary s = ingest(body, null);
+
+        assertFalse(s.ok());
+        assertEquals(5, s.received());
+        assertEquals(3, s.accepted());
+        assertEquals(2, s.rejected());
+        assertEquals(List.of(2, 3), s.errors().stream().map(PushIngestService.Rejection::index).toList());
+        assertEquals("database: insert failed", s.errors().get(0).error());
+        assertEquals(OTHER_CAR, s.errors().get(1).imei());
+    }
+
+    @Test
+    void recordsPastMaxRecordsAreNotRead() throws Exception {
+        ReflectionTestUtils.setField(push, "maxRecords", 2);
+
+        PushIngestService.Summary s = ingest(String.join("\n",
+                fix(ACME_CAR, -15.4), fix(ACME_CAR, -15.5), fix(ACME_CAR, -15.6)), null);
+
+        assertEquals(2, s.received());
+        assertEquals(2, s.accepted());
+        assertEquals("more than 2 records; the rest were not read", s.aborted());
+    }
+
+    @Test
+    void rejectionListIsCappedButCountExact() throws Exception {
+        ReflectionTestUtils.setField(push, "maxErrors", 1);
+
+        PushIngestService.Summary s = ingest(String.join("\n",
+                fix(ACME_CAR, -95), fix(ACME_CAR, -95), fix(ACME_CAR, -95)), null);
+
+        assertEquals(3, s.rejected());
+        assertEquals(1, s.errors().size());
+        assertTrue(s.errorsTruncated());
+    }
+}
@@ -0,0 +1,157 @@
+package com.zedcarhire.zedcarhiretracker.service;
+
+import com.zedcarhire.zedcarhiretracker.model.TrackPoint;
+import com.zedcarhire.zedcarhiretracker.model.TrackerData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RecentTracksTest {
+
+    private static final String IMEI = "354000000000001";
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 10, 0);
+
+    // Latest gps_time "in tracker_data" per IMEI when its ring is created
+    private final Map<String, LocalDateTime> stored = new HashMap<>();
+    private RecentTracks recent;
+
+    @BeforeEach
+    void setUp() {
+        recent = new RecentTracks(null) {
+            @Override
+            LocalDateTime latestStored(String imei) {
+                return stored.get(imei);
+            }
+        };
+        configure(8192, 1_000_000);
+    }
+
+    private void configure(int perDevice, long maxPoints) {
+        ReflectionTestUtils.setField(recent, "enabled", true);
+        ReflectionTestUtils.setField(recent, "perDevice", perDevice);
+        ReflectionTestUtils.setField(recent, "maxPoints", maxPoints);
+    }
+
+    private void record(String imei, LocalDateTime t) {
+        TrackerData td = new TrackerData();
+        td.setImei(imei);
+        td.setLatitude(-15.4);
+        td.setLongitude(28.3);
+        td.setSpeedKph(t.getMinute());
+        td.setGpsTime(t);
+        recent.record(td);
+    }
+
+    private static LocalDateTime at(int minute) {
+        return T0.plusMinutes(minute);
+    }
+
+    private static List<LocalDateTime> times(List<TrackPoint> points) {
+        return points.stream().map(TrackPoint::gpsTime).toList();
+    }
+
+    @Test
+    void servesRangesAfterTheFirstRecordedFix() {
+        stored.put(IMEI, at(0));
+        record(IMEI, at(1));
+        record(IMEI, at(2));
+        record(IMEI, at(3));
+
+        assertEquals(List.of(at(1), at(2), at(3)), times(recent.range(IMEI, at(1), at(10))));
+        assertEquals(List.of(at(2)), times(recent.range(IMEI, at(2), at(2))));
+    }
+
+    @Test
+    void rangesReachingIntoTheDatabaseAreNotServed() {
+        stored.put(IMEI, at(0));
+        record(IMEI, at(1));
+
+        assertNull(recent.range(IMEI, at(0), at(10)));
+        assertNull(recent.range("354000000000002", at(1), at(10)));
+    }
+
+    @Test
+    void newRingDoesNotCoverRowsAlreadyStored() {
+        // Restart: the previous process stored fixes up to 10:00, then the device
+        // re-uploads a buffered 06:00 fix
+        stored.put(IMEI, at(0));
+        record(IMEI, T0.minusHours(4));
+        record(IMEI, at(5));
+
+        assertNull(recent.range(IMEI, T0.minusHours(4), at(10)));
+        assertNull(recent.range(IMEI, T0.minusHours(1), at(10)));
+        assertNull(recent.range(IMEI, at(0), at(10)));
+        assertEquals(List.of(at(5)), times(recent.range(IMEI, at(1), at(10))));
+    }
+
+    @Test
+    void lateFixesAreInsertedInTimeOrder() {
+        stored.put(IMEI, at(0));
+        record(IMEI, at(1));
+        record(IMEI, at(4));
+        record(IMEI, at(2));
+        record(IMEI, at(5));
+        record(IMEI, at(3));
+
+        assertEquals(List.of(at(1), at(2), at(3), at(4), at(5)), times(recent.range(IMEI, at(1), at(5))));
+    }
+
+    @Test
+    void wraparoundKeepsTheNewestFixesAndNarrowsCoverage() {
+        configure(4, 1_000_000);
+        stored.put(IMEI, at(0));
+        for (int m = 1; m <= 6; m++) record(IMEI, at(m));
+
+        assertEquals(List.of(at(3), at(4), at(5), at(6)), times(recent.range(IMEI, at(3), at(6))));
+        assertNull(recent.range(IMEI, at(2), at(6)));
+
+        // Older than the window: stays in the database only
+        record(IMEI, at(2));
+        assertEquals(List.of(at(3), at(4), at(5), at(6)), times(recent.range(IMEI, at(3), at(6))));
+
+        // Late but inside the window: inserted in place, the oldest is overwritten
+        record(IMEI, at(4).plusSeconds(30));
+        assertEquals(List.of(at(4), at(4).plusSeconds(30), at(5), at(6)), times(recent.range(IMEI, at(4), at(6))));
+        assertNull(recent.range(IMEI, at(3), at(6)));
+    }
+
+    @Test
+    void ringGrowsPastItsInitialCapacity() {
+        configure(500, 1_000_000);
+        stored.put(IMEI, at(0));
+        for (int m = 1; m <= 300; m++) record(IMEI, at(m));
+
+        List<TrackPoint> points = recent.range(IMEI, at(1), at(300));
+        assertEquals(300, points.size());
+        assertEquals(at(1), points.get(0).gpsTime());
+        assertEquals(at(300), points.get(299).gpsTime());
+    }
+
+    @Test
+    void evictedRingIsRebuiltFromTheDatabaseHighWaterMark() {
+        configure(64, 100);
+        stored.put(IMEI, at(0));
+        record(IMEI, at(1));
+        assertNotNull(recent.range(IMEI, at(1), at(1)));
+
+        // Two more vehicles push the fleet over maxPoints; the least recently used goes
+        record("354000000000002", at(1));
+        record("354000000000003", at(1));
+        assertNull(recent.range(IMEI, at(1), at(1)));
+
+        stored.put(IMEI, at(10));
+        record(IMEI, at(2));   // re-upload from before the stored high-water mark
+        record(IMEI, at(11));
+        assertNull(recent.range(IMEI, at(2), at(20)));
+        assertEquals(List.of(at(11)), times(recent.range(IMEI, at(10).plusSeconds(1), at(20))));
+    }
+}
@@ -0,0 +1,180 @@
+package com.zedcarhire.zedcarhiretracker.sim;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GT06 fleet simulator / ingest capacity test.
+ *
+ * Opens N concurrent tracker connections against a running TcpServer, logs each one in,
+ * then sends heartbeats and 0x12/0x22/0x94 fixes at the configured rates. ACKs are
+ * matched back to frames by serial number to measure round-trip percentiles.
+ *
+ * The simulator and the loadtest profile live in the test tree so they stay out of the
+ * production jar. Run the app on the embedded database first:
+ *   mvn -Ploadtest test-compile spring-boot:run -Dspring-boot.run.profiles=loadtest \
+ *       -Dspring-boot.run.useTestClasspath=true
+ *
+ * Then, from another shell:
+ *   java -cp target/test-classes com.zedcarhire.zedcarhiretracker.sim.Gt06FleetSimulator \
+ *        --devices=500 --duration=120 --fixInterval=5000 --mix=12:70,22:20,94:10 \
+ *        --fragmentPct=10 --coalesce=1 --api=http://localhost:8083 --apiKey=ET-SECRET-123
+ *
+ * With --api set, stored fixes are counted per simulated IMEI through /api/tracker-data
+ * after the run, giving stored-fix throughput next to the ACK numbers.
+ */
+public class Gt06FleetSimulator {
+
+    public static void main(String[] args) throws Exception {
+        SimConfig config = SimConfig.parse(args);
+        new Gt06FleetSimulator().run(config);
+    }
+
+    public void run(SimConfig config) throws Exception {
+        System.out.println("[SIM] " + config.devices + " devices -> " + config.host + ":" + config.port +
+                " for " + config.durationMs / 1000 + "s, fix every " + config.fixIntervalMs + "ms" +
+                ", heartbeat every " + config.heartbeatIntervalMs + "ms" +
+                ", fragment " + config.fragmentPct + "%, coalesce " + config.coalesce);
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(config.threads);
+        List<SimulatedDevice> devices = new ArrayList<>();
+        AtomicLong connectFailures = new AtomicLong();
+
+        LocalDateTime startedAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < config.devices; i++) {
+            SimulatedDevice device = new SimulatedDevice(String.valueOf(config.imeiBase + i), config);
+            devices.add(device);
+            long connectAt = config.devices > 1 ? config.rampUpMs * i / config.devices : 0;
+
+            scheduler.schedule(() -> {
+                try {
+                    device.connect();
+                } catch (Exception e) {
+                    connectFailures.incrementAndGet();
+                    return;
+                }
+                // Spread the first report of each device over one interval
+                long fixOffset = ThreadLocalRandom.current().nextLong(config.fixIntervalMs);
+                long hbOffset = ThreadLocalRandom.current().nextLong(config.heartbeatIntervalMs);
+                scheduler.scheduleAtFixedRate(device::sendFix, fixOffset, config.fixIntervalMs, TimeUnit.MILLISECONDS);
+                scheduler.scheduleAtFixedRate(device::sendHeartbeat, hbOffset, config.heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+            }, connectAt, TimeUnit.MILLISECONDS);
+        }
+
+        Thread.sleep(config.durationMs);
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        long elapsedNanos = System.nanoTime() - start;
+
+        // Push out any partly filled coalescing batch, then give outstanding ACKs a chance
+        for (SimulatedDevice d : devices) d.flushPending();
+        Thread.sleep(config.ackTimeoutMs);
+        LocalDateTime endedAt = LocalDateTime.now().plusSeconds(1);
+        long disconnected = devices.stream().filter(d -> !d.isConnected()).count();
+        for (SimulatedDevice d : devices) d.close();
+
+        report(config, devices, connectFailures.get(), disconnected, elapsedNanos, startedAt, endedAt);
+    }
+
+    private void report(SimConfig config, List<SimulatedDevice> devices, long connectFailures,
+                        long disconnected, long elapsedNanos, LocalDateTime from, LocalDateTime to) throws Exception {
+        LatencyRecorder all = new LatencyRecorder();
+        long frames = 0, fixes = 0, acks = 0, late = 0, unmatched = 0, writeErrors = 0;
+        for (SimulatedDevice d : devices) {
+            d.latencies().drainTo(all);
+            frames += d.framesSent.get();
+            fixes += d.fixesSent.get();
+            acks += d.acksReceived.get();
+            late += d.lateAcks.get();
+            unmatched += d.unmatchedAcks.get();
+            writeErrors += d.writeErrors.get();
+        }
+        double seconds = elapsedNanos / 1e9;
+        long[] sorted = all.sorted();
+
+        System.out.println();
+        System.out.println("==================== GT06 CAPACITY REPORT ====================");
+        System.out.printf("Target            : %s:%d%n", config.host, config.port);
+        System.out.printf("Devices           : %d (connect failures %d, dropped before end %d)%n",
+                config.devices, connectFailures, disconnected - connectFailures);
+        System.out.printf("Duration          : %.1f s%n", seconds);
+        System.out.printf("Fragmentation     : %d%% of writes, coalesce %d frame(s)/write%n",
+                config.fragmentPct, config.coalesce);
+        System.out.printf("Frames sent       : %d (%.1f/s)%n", frames, frames / seconds);
+        System.out.printf("Fixes sent        : %d (%.1f/s)%n", fixes, fixes / seconds);
+        System.out.printf("ACKs received     : %d (%.1f%%), late %d, unmatched %d, write errors %d%n",
+                acks, frames == 0 ? 0.0 : acks * 100.0 / frames, late, unmatched, writeErrors);
+        System.out.printf("ACK RTT (ms)      : p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                ms(LatencyRecorder.percentile(sorted, 50)),
+                ms(LatencyRecorder.percentile(sorted, 90)),
+                ms(LatencyRecorder.percentile(sorted, 99)),
+                ms(LatencyRecorder.percentile(sorted, 99.9)),
+                ms(sorted.length == 0 ? 0 : sorted[sorted.length - 1]));
+
+        if (config.api != null && !config.api.isBlank()) {
+            long stored = countStored(config, devices, from, to);
+            System.out.printf("Fixes stored      : %d (%.1f/s, %.1f%% of sent)%n",
+                    stored, stored / seconds, fixes == 0 ? 0.0 : stored * 100.0 / fixes);
+        }
+        System.out.println("==============================================================");
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Counts rows per simulated IMEI through the search API.
+     * Honours 429 Retry-After so the count itself is not throttled away.
+     */
+    private long countStored(SimConfig config, List<SimulatedDevice> devices,
+                             LocalDateTime from, LocalDateTime to) throws Exception {
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        long total = 0;
+        for (SimulatedDevice d : devices) {
+            String url = config.api + "/api/tracker-data?imei=" + d.imei() +
+                    "&from=" + URLEncoder.encode(from.toString(), StandardCharsets.UTF_8) +
+                    "&to=" + URLEncoder.encode(to.toString(), StandardCharsets.UTF_8);
+            HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30)).GET();
+            if (config.apiKey != null) req.header("X-API-KEY", config.apiKey);
+
+            for (int attempt = 0; attempt < 10; attempt++) {
+                HttpResponse<String> res = http.send(req.build(), HttpResponse.BodyHandlers.ofString());
+                if (res.statusCode() == 429) {
+                    long wait = res.headers().firstValueAsLong("Retry-After").orElse(1);
+                    Thread.sleep(wait * 1000);
+                    continue;
+                }
+                if (res.statusCode() != 200) {
+                    System.out.println("[SIM] Count failed for " + d.imei() + ": HTTP " + res.statusCode());
+                    break;
+                }
+                total += occurrences(res.body(), "\"imei\"");
+                break;
+            }
+        }
+        return total;
+    }
+
+    private static int occurrences(String s, String token) {
+        int n = 0;
+        for (int i = s.indexOf(token); i >= 0; i = s.indexOf(token, i + token.length())) n++;
+        return n;
+    }
+}
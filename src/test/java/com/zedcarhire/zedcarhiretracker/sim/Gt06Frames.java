@@ -0,0 +1,175 @@
+package com.zedcarhire.zedcarhiretracker.sim;
+
+import java.time.LocalDateTime;
+
+/**
+ * Builds GT06 frames the way a real tracker puts them on the wire.
+ * Used by the fleet simulator only - the server never sends these.
+ */
+public class Gt06Frames {
+
+    public static final int LOGIN = 0x01;
+    public static final int GPS = 0x12;
+    public static final int HEARTBEAT = 0x13;
+    public static final int GPS_LBS_STATUS = 0x22;
+    public static final int INFO = 0x94;
+
+    /**
+     * 78 78 0D 01 [IMEI: 8 bytes BCD] [SERIAL] [CRC] 0D 0A
+     */
+    public static byte[] login(String imei, int serial) {
+        byte[] body = new byte[8];
+        String padded = imei.length() % 2 == 0 ? imei : "0" + imei;
+        for (int i = 0; i < 8 && i * 2 + 1 < padded.length(); i++) {
+            int high = padded.charAt(i * 2) - '0';
+            int low = padded.charAt(i * 2 + 1) - '0';
+            body[i] = (byte) ((high << 4) | low);
+        }
+        return shortFrame(LOGIN, body, serial);
+    }
+
+    /**
+     * 78 78 0A 13 [TERMINAL INFO] [VOLTAGE LEVEL] [GSM SIGNAL] [ALARM/LANG 2] [SERIAL] [CRC] 0D 0A
+     */
+    public static byte[] heartbeat(int terminalInfo, int voltageLevel, int gsmSignal, int serial) {
+        byte[] body = {
+                (byte) terminalInfo,
+                (byte) voltageLevel,
+                (byte) gsmSignal,
+                0x00, 0x02
+        };
+        return shortFrame(HEARTBEAT, body, serial);
+    }
+
+    /**
+     * 0x12: [DATE 6] [GPS LEN/SATS] [LAT 4] [LNG 4] [SPEED] [COURSE/STATUS 2] [MCC 2] [MNC] [LAC 2] [CELL 3]
+     * 0x22: same as 0x12 followed by [ACC] [UPLOAD MODE] [REALTIME FLAG]
+     */
+    public static byte[] location(int proto, LocalDateTime time, double lat, double lng,
+                                  int speedKph, int course, boolean accOn, int serial) {
+        int len = proto == GPS_LBS_STATUS ? 29 : 26;
+        byte[] body = new byte[len];
+        int i = putGps(body, 0, time, lat, lng, speedKph, course);
+        // LBS: Zambia MCC 645, MNC 1, fake LAC/cell
+        body[i++] = 0x02; body[i++] = (byte) 0x85;
+        body[i++] = 0x01;
+        body[i++] = 0x12; body[i++] = 0x34;
+        body[i++] = 0x00; body[i++] = 0x56; body[i++] = 0x78;
+        if (proto == GPS_LBS_STATUS) {
+            body[i++] = (byte) (accOn ? 1 : 0);
+            body[i++] = 0x00;
+            body[i] = 0x00;
+        }
+        return shortFrame(proto, body, serial);
+    }
+
+    /**
+     * 79 79 [LEN 2] 94 [SUB-TYPE] [VENDOR] [DATE 6] [GPS LEN/SATS] [LAT 4] [LNG 4] [SPEED] [COURSE/STATUS 2] [SERIAL] [CRC] 0D 0A
+     * Mirrors the SMS-based units that carry a position inside an info-transmission frame.
+     */
+    public static byte[] info(int subType, LocalDateTime time, double lat, double lng, int speedKph, int course, int serial) {
+        byte[] body = new byte[2 + 18];
+        body[0] = (byte) subType;
+        body[1] = 0x01;
+        putGps(body, 2, time, lat, lng, speedKph, course);
+        return longFrame(INFO, body, serial);
+    }
+
+    /**
+     * 79 79 [LEN 2] 94 [SUB-TYPE] [CONTENT] [SERIAL] [CRC] 0D 0A
+     */
+    public static byte[] info(int subType, byte[] content, int serial) {
+        byte[] body = new byte[1 + content.length];
+        body[0] = (byte) subType;
+        System.arraycopy(content, 0, body, 1, content.length);
+        return longFrame(INFO, body, serial);
+    }
+
+    private static int putGps(byte[] b, int i, LocalDateTime t, double lat, double lng, int speedKph, int course) {
+        b[i++] = (byte) (t.getYear() - 2000);
+        b[i++] = (byte) t.getMonthValue();
+        b[i++] = (byte) t.getDayOfMonth();
+        b[i++] = (byte) t.getHour();
+        b[i++] = (byte) t.getMinute();
+        b[i++] = (byte) t.getSecond();
+        b[i++] = (byte) 0xC9; // 12 bytes of GPS info, 9 satellites
+        i = putInt(b, i, (int) Math.round(Math.abs(lat) * 1800000.0));
+        i = putInt(b, i, (int) Math.round(Math.abs(lng) * 1800000.0));
+        b[i++] = (byte) speedKph;
+        // bit 12 = GPS fixed; bits 10/11 clear = south latitude, east longitude
+        int courseStatus = 0x1000 | (course & 0x03FF);
+        b[i++] = (byte) (courseStatus >> 8);
+        b[i++] = (byte) courseStatus;
+        return i;
+    }
+
+    private static int putInt(byte[] b, int i, int v) {
+        b[i++] = (byte) (v >> 24);
+        b[i++] = (byte) (v >> 16);
+        b[i++] = (byte) (v >> 8);
+        b[i++] = (byte) v;
+        return i;
+    }
+
+    private static byte[] shortFrame(int proto, byte[] body, int serial) {
+        byte[] f = new byte[body.length + 10];
+        f[0] = 0x78;
+        f[1] = 0x78;
+        f[2] = (byte) (body.length + 5);
+        f[3] = (byte) proto;
+        System.arraycopy(body, 0, f, 4, body.length);
+        return finish(f, 2, serial);
+    }
+
+    private static byte[] longFrame(int proto, byte[] body, int serial) {
+        byte[] f = new byte[body.length + 11];
+        int len = body.length + 5;
+        f[0] = 0x79;
+        f[1] = 0x79;
+        f[2] = (byte) (len >> 8);
+        f[3] = (byte) len;
+        f[4] = (byte) proto;
+        System.arraycopy(body, 0, f, 5, body.length);
+        return finish(f, 2, serial);
+    }
+
+    private static byte[] finish(byte[] f, int crcStart, int serial) {
+        int n = f.length;
+        f[n - 6] = (byte) (serial >> 8);
+        f[n - 5] = (byte) serial;
+        int crc = crcItu(f, crcStart, n - 4);
+        f[n - 4] = (byte) (crc >> 8);
+        f[n - 3] = (byte) crc;
+        f[n - 2] = 0x0D;
+        f[n - 1] = 0x0A;
+        return f;
+    }
+
+    /**
+     * CRC-ITU (X.25) as used by GT06 devices
+     */
+    private static int crcItu(byte[] data, int start, int end) {
+        int crc = 0xFFFF;
+        for (int i = start; i < end; i++) {
+            crc ^= data[i] & 0xFF;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0x8408 : crc >>> 1;
+            }
+        }
+        return ~crc & 0xFFFF;
+    }
+
+    /**
+     * Length of the frame starting at {@code off}, or -1 if not enough bytes are buffered yet.
+     */
+    public static int frameLength(byte[] buf, int off, int available) {
+        if (available < 4) return -1;
+        if (buf[off] == 0x78 && buf[off + 1] == 0x78) {
+            return (buf[off + 2] & 0xFF) + 5;
+        }
+        if (buf[off] == 0x79 && buf[off + 1] == 0x79) {
+            return (((buf[off + 2] & 0xFF) << 8) | (buf[off + 3] & 0xFF)) + 6;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,43 @@
+package com.zedcarhire.zedcarhiretracker.sim;
+
+import java.util.Arrays;
+
+/**
+ * Collects ACK round-trip samples (nanoseconds) and reports percentiles.
+ * One recorder per simulated device so reader threads never contend.
+ */
+public class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+
+    public synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    public synchronized void drainTo(LatencyRecorder target) {
+        for (int i = 0; i < count; i++) target.record(samples[i]);
+    }
+
+    /**
+     * Sorted copy of all samples; percentiles are read from it with {@link #percentile}.
+     */
+    public synchronized long[] sorted() {
+        long[] copy = Arrays.copyOf(samples, count);
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    public static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int idx = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(idx, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,110 @@
+package com.zedcarhire.zedcarhiretracker.sim;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Command line options for {@link Gt06FleetSimulator}, given as --name=value.
+ */
+public class SimConfig {
+
+    public String host = "127.0.0.1";
+    public int port = 5000;
+    public int devices = 100;
+    public long imeiBase = 860000000000000L;
+
+    public long durationMs = 60_000;
+    public long rampUpMs = 5_000;
+    public long fixIntervalMs = 10_000;
+    public long heartbeatIntervalMs = 60_000;
+    public long ackTimeoutMs = 5_000;
+
+    // proto -> weight, e.g. 12:70,22:20,94:10
+    public Map<Integer, Integer> mix = new LinkedHashMap<>(Map.of(0x12, 70, 0x22, 20, 0x94, 10));
+
+    // % of writes split into two TCP segments
+    public int fragmentPct = 0;
+    public long fragmentDelayMs = 5;
+    // frames buffered into one write (1 = no coalescing)
+    public int coalesce = 1;
+
+    public int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    // optional REST API used to count stored fixes after the run
+    public String api;
+    public String apiKey;
+
+    public static SimConfig parse(String[] args) {
+        SimConfig c = new SimConfig();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1).trim();
+            switch (name) {
+                case "host" -> c.host = value;
+                case "port" -> c.port = Integer.parseInt(value);
+                case "devices" -> c.devices = Integer.parseInt(value);
+                case "imeiBase" -> c.imeiBase = Long.parseLong(value);
+                case "duration" -> c.durationMs = Long.parseLong(value) * 1000;
+                case "rampUp" -> c.rampUpMs = Long.parseLong(value) * 1000;
+                case "fixInterval" -> c.fixIntervalMs = Long.parseLong(value);
+                case "heartbeatInterval" -> c.heartbeatIntervalMs = Long.parseLong(value);
+                case "ackTimeout" -> c.ackTimeoutMs = Long.parseLong(value);
+                case "mix" -> c.mix = parseMix(value);
+                case "fragmentPct" -> c.fragmentPct = Integer.parseInt(value);
+                case "fragmentDelay" -> c.fragmentDelayMs = Long.parseLong(value);
+                case "coalesce" -> c.coalesce = Math.max(1, Integer.parseInt(value));
+                case "threads" -> c.threads = Integer.parseInt(value);
+                case "api" -> c.api = value;
+                case "apiKey" -> c.apiKey = value;
+                default -> throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+        }
+        c.validate();
+        return c;
+    }
+
+    private void validate() {
+        require(devices > 0, "--devices must be > 0");
+        require(durationMs > 0, "--duration must be > 0");
+        require(rampUpMs >= 0, "--rampUp must be >= 0");
+        // Used as random bounds and scheduler periods, both of which must be positive
+        require(fixIntervalMs > 0, "--fixInterval must be > 0");
+        require(heartbeatIntervalMs > 0, "--heartbeatInterval must be > 0");
+        require(ackTimeoutMs >= 0, "--ackTimeout must be >= 0");
+        require(fragmentPct >= 0 && fragmentPct <= 100, "--fragmentPct must be 0-100");
+        require(fragmentDelayMs >= 0, "--fragmentDelay must be >= 0");
+        require(threads > 0, "--threads must be > 0");
+        require(!mix.isEmpty() && mix.values().stream().allMatch(w -> w >= 0)
+                && mix.values().stream().mapToInt(Integer::intValue).sum() > 0, "--mix needs a positive total weight");
+    }
+
+    private static void require(boolean ok, String message) {
+        if (!ok) throw new IllegalArgumentException(message);
+    }
+
+    private static Map<Integer, Integer> parseMix(String value) {
+        Map<Integer, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] kv = part.trim().split(":");
+            mix.put(Integer.parseInt(kv[0], 16), Integer.parseInt(kv[1]));
+        }
+        return mix;
+    }
+
+    /**
+     * Picks a fix protocol according to the configured weights.
+     */
+    public int pickProto(double r) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        double target = r * total;
+        int acc = 0;
+        for (Map.Entry<Integer, Integer> e : mix.entrySet()) {
+            acc += e.getValue();
+            if (target < acc) return e.getKey();
+        }
+        return Gt06Frames.GPS;
+    }
+}
@@ -0,0 +1,27 @@
+package com.zedcarhire.zedcarhiretracker.sim;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SimConfigTest {
+
+    @Test
+    void parsesOptions() {
+        SimConfig c = SimConfig.parse(new String[]{"--devices=10", "--duration=5", "--fixInterval=250", "--mix=12:1,94:3"});
+        assertEquals(10, c.devices);
+        assertEquals(5_000, c.durationMs);
+        assertEquals(250, c.fixIntervalMs);
+        assertEquals(0x94, c.pickProto(0.5));
+    }
+
+    @Test
+    void rejectsIntervalsTheSchedulerCannotUse() {
+        assertThrows(IllegalArgumentException.class, () -> SimConfig.parse(new String[]{"--fixInterval=0"}));
+        assertThrows(IllegalArgumentException.class, () -> SimConfig.parse(new String[]{"--heartbeatInterval=-1"}));
+        assertThrows(IllegalArgumentException.class, () -> SimConfig.parse(new String[]{"--threads=0"}));
+        assertThrows(IllegalArgumentException.class, () -> SimConfig.parse(new String[]{"--mix=12:0"}));
+        assertThrows(IllegalArgumentException.class, () -> SimConfig.parse(new String[]{"--fragmentPct=101"}));
+    }
+}
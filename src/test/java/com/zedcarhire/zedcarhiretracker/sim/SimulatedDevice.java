@@ -0,0 +1,209 @@
+package com.zedcarhire.zedcarhiretracker.sim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One simulated tracker: a TCP connection, a writer driven by the simulator's
+ * scheduler and a reader thread matching ACKs to sent frames by serial number.
+ */
+public class SimulatedDevice {
+
+    private final String imei;
+    private final SimConfig config;
+    private final LatencyRecorder latencies = new LatencyRecorder();
+
+    private Socket socket;
+    private OutputStream out;
+    private volatile boolean running;
+
+    private int serial;
+    private final List<byte[]> batch = new ArrayList<>();
+    // serial -> nanoTime of the write carrying it
+    private final Map<Integer, Long> pending = new ConcurrentHashMap<>();
+
+    final AtomicLong framesSent = new AtomicLong();
+    final AtomicLong fixesSent = new AtomicLong();
+    final AtomicLong acksReceived = new AtomicLong();
+    final AtomicLong lateAcks = new AtomicLong();
+    final AtomicLong unmatchedAcks = new AtomicLong();
+    final AtomicLong writeErrors = new AtomicLong();
+
+    // random walk around Lusaka
+    private double lat;
+    private double lng;
+    private int course;
+
+    public SimulatedDevice(String imei, SimConfig config) {
+        this.imei = imei;
+        this.config = config;
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        this.lat = -15.4167 + r.nextDouble(-1.0, 1.0);
+        this.lng = 28.2833 + r.nextDouble(-1.0, 1.0);
+        this.course = r.nextInt(360);
+    }
+
+    public String imei() {
+        return imei;
+    }
+
+    public LatencyRecorder latencies() {
+        return latencies;
+    }
+
+    public boolean isConnected() {
+        return running;
+    }
+
+    public void connect() throws Exception {
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(config.host, config.port), 5000);
+        out = socket.getOutputStream();
+        running = true;
+
+        Thread reader = new Thread(this::readAcks, "sim-reader-" + imei);
+        reader.setDaemon(true);
+        reader.start();
+
+        // Login is always sent on its own, like a real unit does after connecting
+        synchronized (this) {
+            send(Gt06Frames.login(imei, nextSerial()));
+            flush();
+        }
+    }
+
+    public synchronized void sendFix() {
+        if (!running) return;
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        course = (course + r.nextInt(-20, 21) + 360) % 360;
+        int speed = r.nextInt(0, 121);
+        double step = speed / 3600.0 * (config.fixIntervalMs / 1000.0) / 111.0;
+        lat += step * Math.cos(Math.toRadians(course));
+        lng += step * Math.sin(Math.toRadians(course));
+
+        int proto = config.pickProto(r.nextDouble());
+        LocalDateTime now = LocalDateTime.now();
+        byte[] frame = proto == Gt06Frames.INFO
+                ? Gt06Frames.info(0x33, now, lat, lng, speed, course, nextSerial())
+                : Gt06Frames.location(proto, now, lat, lng, speed, course, speed > 0, nextSerial());
+        fixesSent.incrementAndGet();
+        send(frame);
+    }
+
+    public synchronized void sendHeartbeat() {
+        if (!running) return;
+        // ACC on, charging, GPS tracking on
+        send(Gt06Frames.heartbeat(0x46, 4, 3, nextSerial()));
+    }
+
+    private int nextSerial() {
+        serial = (serial + 1) & 0xFFFF;
+        return serial;
+    }
+
+    private void send(byte[] frame) {
+        batch.add(frame);
+        if (batch.size() >= config.coalesce) flush();
+    }
+
+    private void flush() {
+        if (batch.isEmpty()) return;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        for (byte[] f : batch) buf.writeBytes(f);
+        byte[] bytes = buf.toByteArray();
+
+        try {
+            long now = System.nanoTime();
+            for (byte[] f : batch) {
+                int s = ((f[f.length - 6] & 0xFF) << 8) | (f[f.length - 5] & 0xFF);
+                pending.put(s, now);
+            }
+            framesSent.addAndGet(batch.size());
+            batch.clear();
+
+            if (config.fragmentPct > 0 && ThreadLocalRandom.current().nextInt(100) < config.fragmentPct) {
+                int cut = 1 + ThreadLocalRandom.current().nextInt(bytes.length - 1);
+                out.write(bytes, 0, cut);
+                out.flush();
+                Thread.sleep(config.fragmentDelayMs);
+                out.write(bytes, cut, bytes.length - cut);
+            } else {
+                out.write(bytes);
+            }
+            out.flush();
+        } catch (Exception e) {
+            writeErrors.incrementAndGet();
+            close();
+        }
+    }
+
+    private void readAcks() {
+        byte[] buf = new byte[4096];
+        int filled = 0;
+        try (InputStream in = socket.getInputStream()) {
+            int n;
+            while (running && (n = in.read(buf, filled, buf.length - filled)) != -1) {
+                long now = System.nanoTime();
+                filled += n;
+                int off = 0;
+                while (true) {
+                    int len = Gt06Frames.frameLength(buf, off, filled - off);
+                    if (len == 0) {
+                        // lost sync - drop the garbage byte
+                        off++;
+                        continue;
+                    }
+                    if (len < 0 || len > filled - off) break;
+                    onAck(buf, off, len, now);
+                    off += len;
+                }
+                System.arraycopy(buf, off, buf, 0, filled - off);
+                filled -= off;
+            }
+        } catch (Exception e) {
+            // connection dropped - counted as missing ACKs
+        } finally {
+            running = false;
+        }
+    }
+
+    private void onAck(byte[] buf, int off, int len, long now) {
+        if (len < 10) return;
+        int s = ((buf[off + len - 6] & 0xFF) << 8) | (buf[off + len - 5] & 0xFF);
+        Long sentAt = pending.remove(s);
+        if (sentAt == null) {
+            unmatchedAcks.incrementAndGet();
+            return;
+        }
+        long rtt = now - sentAt;
+        acksReceived.incrementAndGet();
+        if (rtt > config.ackTimeoutMs * 1_000_000L) {
+            lateAcks.incrementAndGet();
+        } else {
+            latencies.record(rtt);
+        }
+    }
+
+    public synchronized void close() {
+        running = false;
+        try {
+            if (socket != null) socket.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    public synchronized void flushPending() {
+        if (running) flush();
+    }
+}
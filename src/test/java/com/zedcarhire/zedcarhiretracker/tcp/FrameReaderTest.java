@@ -0,0 +1,135 @@
+package com.zedcarhire.zedcarhiretracker.tcp;
+
+import com.zedcarhire.zedcarhiretracker.sim.Gt06Frames;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameReaderTest {
+
+    private static final byte[] LOGIN = Gt06Frames.login("354778345253671", 1);
+    private static final byte[] FIX = Gt06Frames.location(Gt06Frames.GPS_LBS_STATUS,
+            LocalDateTime.of(2025, 1, 1, 10, 0), -15.4, 28.3, 60, 90, true, 2);
+    private static final byte[] INFO = Gt06Frames.info(0x33,
+            LocalDateTime.of(2025, 1, 1, 10, 0), -15.4, 28.3, 60, 90, 3);
+
+    private static List<byte[]> drain(FrameReader reader) {
+        List<byte[]> out = new ArrayList<>();
+        byte[] frame;
+        while ((frame = reader.next()) != null) out.add(frame);
+        return out;
+    }
+
+    private static void feed(FrameReader reader, byte[] bytes) {
+        reader.feed(bytes, bytes.length);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int n = 0;
+        for (byte[] p : parts) n += p.length;
+        byte[] out = new byte[n];
+        int i = 0;
+        for (byte[] p : parts) {
+            System.arraycopy(p, 0, out, i, p.length);
+            i += p.length;
+        }
+        return out;
+    }
+
+    @Test
+    void wholeFramesPassThrough() {
+        FrameReader reader = new FrameReader();
+        feed(reader, LOGIN);
+        List<byte[]> frames = drain(reader);
+        assertEquals(1, frames.size());
+        assertArrayEquals(LOGIN, frames.get(0));
+    }
+
+    @Test
+    void fragmentedFrameIsReassembled() {
+        FrameReader reader = new FrameReader();
+        for (int split : new int[]{1, 2, 3, LOGIN.length - 1}) {
+            feed(reader, Arrays.copyOfRange(LOGIN, 0, split));
+            assertTrue(drain(reader).isEmpty());
+            feed(reader, Arrays.copyOfRange(LOGIN, split, LOGIN.length));
+            List<byte[]> frames = drain(reader);
+            assertEquals(1, frames.size());
+            assertArrayEquals(LOGIN, frames.get(0));
+        }
+        assertFalse(reader.isCorrupt());
+    }
+
+    @Test
+    void coalescedFramesAreSplit() {
+        FrameReader reader = new FrameReader();
+        byte[] stream = concat(LOGIN, FIX, INFO, FIX);
+        // Last frame cut in two
+        feed(reader, Arrays.copyOfRange(stream, 0, stream.length - 5));
+        List<byte[]> frames = drain(reader);
+        assertEquals(3, frames.size());
+        assertArrayEquals(LOGIN, frames.get(0));
+        assertArrayEquals(FIX, frames.get(1));
+        assertArrayEquals(INFO, frames.get(2));
+
+        feed(reader, Arrays.copyOfRange(stream, stream.length - 5, stream.length));
+        frames = drain(reader);
+        assertEquals(1, frames.size());
+        assertArrayEquals(FIX, frames.get(0));
+    }
+
+    @Test
+    void bytesOutsideAFrameCorruptTheStream() {
+        FrameReader reader = new FrameReader();
+        feed(reader, concat(LOGIN, "GET / HTTP/1.1\r\n".getBytes()));
+        assertEquals(1, drain(reader).size());
+        assertTrue(reader.isCorrupt());
+        assertArrayEquals("GE".getBytes(), reader.head(2));
+    }
+
+    @Test
+    void missingStopBitsCorruptTheStream() {
+        FrameReader reader = new FrameReader();
+        byte[] broken = LOGIN.clone();
+        broken[broken.length - 1] = 0x00;
+        feed(reader, broken);
+        assertNull(reader.next());
+        assertTrue(reader.isCorrupt());
+    }
+
+    @Test
+    void oversizedLengthCorruptsTheStream() {
+        FrameReader reader = new FrameReader();
+        feed(reader, new byte[]{0x79, 0x79, (byte) 0xFF, (byte) 0xFF, (byte) 0x94});
+        assertNull(reader.next());
+        assertTrue(reader.isCorrupt());
+    }
+
+    @Test
+    void manyReadsKeepWorkingAcrossBufferCompaction() {
+        FrameReader reader = new FrameReader();
+        byte[] stream = concat(FIX, FIX, FIX);
+        int frames = 0;
+        for (int round = 0; round < 200; round++) {
+            // Uneven chunks so frame edges land everywhere in the buffer
+            for (int i = 0; i < stream.length; i += 7) {
+                byte[] chunk = Arrays.copyOfRange(stream, i, Math.min(stream.length, i + 7));
+                feed(reader, chunk);
+                for (byte[] f : drain(reader)) {
+                    assertArrayEquals(FIX, f);
+                    frames++;
+                }
+            }
+        }
+        assertEquals(600, frames);
+        assertFalse(reader.isCorrupt());
+    }
+}
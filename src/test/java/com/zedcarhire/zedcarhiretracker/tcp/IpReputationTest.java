@@ -0,0 +1,122 @@
+package com.zedcarhire.zedcarhiretracker.tcp;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IpReputationTest {
+
+    private static final long MINUTE = 60_000;
+
+    private IpReputation reputation;
+    private long now = 1_700_000_000_000L;
+
+    @BeforeEach
+    void setUp() {
+        configure(100);
+    }
+
+    private void configure(int capacity) {
+        reputation = new IpReputation();
+        ReflectionTestUtils.setField(reputation, "capacity", capacity);
+        ReflectionTestUtils.setField(reputation, "maxFailures", 3);
+        ReflectionTestUtils.setField(reputation, "blockMinutes", 60L);
+        ReflectionTestUtils.setField(reputation, "windowMinutes", 10L);
+        ReflectionTestUtils.setField(reputation, "tickMs", 30_000L);
+        reputation.clock = () -> now;
+        reputation.init();
+    }
+
+    private void advance(long ms) {
+        // The scheduler ticks every 30 s
+        for (long t = 0; t < ms; t += 30_000) {
+            now += Math.min(30_000, ms - t);
+            reputation.tick();
+        }
+    }
+
+    private long stat(String name) {
+        return ((Number) reputation.snapshot(0).get(name)).longValue();
+    }
+
+    @Test
+    void blocksAfterMaxFailuresUntilTheBlockExpires() {
+        assertFalse(reputation.recordFailure("10.0.0.1"));
+        assertFalse(reputation.recordFailure("10.0.0.1"));
+        assertFalse(reputation.isBlocked("10.0.0.1"));
+        assertTrue(reputation.recordFailure("10.0.0.1"));
+        assertTrue(reputation.isBlocked("10.0.0.1"));
+        assertFalse(reputation.isBlocked("10.0.0.2"));
+        assertEquals(1, stat("rejectedConnections"));
+
+        advance(59 * MINUTE);
+        assertTrue(reputation.isBlocked("10.0.0.1"));
+        advance(2 * MINUTE);
+        assertFalse(reputation.isBlocked("10.0.0.1"));
+        assertEquals(0, stat("tracked"));
+    }
+
+    @Test
+    void expiredBlockStartsCountingAfresh() {
+        for (int i = 0; i < 3; i++) reputation.recordFailure("10.0.0.1");
+        // Block over, but the tick has not removed the entry yet
+        now += 61 * MINUTE;
+        assertFalse(reputation.isBlocked("10.0.0.1"));
+        assertFalse(reputation.recordFailure("10.0.0.1"));
+        assertFalse(reputation.isBlocked("10.0.0.1"));
+    }
+
+    @Test
+    void failuresBelowTheLimitAreForgottenAfterTheWindow() {
+        reputation.recordFailure("10.0.0.1");
+        reputation.recordFailure("10.0.0.1");
+        advance(11 * MINUTE);
+        assertEquals(0, stat("tracked"));
+        assertFalse(reputation.recordFailure("10.0.0.1"));
+        assertFalse(reputation.recordFailure("10.0.0.1"));
+        assertTrue(reputation.recordFailure("10.0.0.1"));
+    }
+
+    @Test
+    void successfulLoginClearsTheRecord() {
+        reputation.recordFailure("10.0.0.1");
+        reputation.recordFailure("10.0.0.1");
+        reputation.clear("10.0.0.1");
+        assertFalse(reputation.recordFailure("10.0.0.1"));
+        assertFalse(reputation.recordFailure("10.0.0.1"));
+    }
+
+    @Test
+    void fullTableEvictsFailingIpsSoBlockingKeepsWorking() {
+        configure(4);
+        // A wide scan: one failure each from many addresses
+        for (int i = 0; i < 50; i++) reputation.recordFailure("192.0.2." + i);
+        assertEquals(4, stat("tracked"));
+        assertEquals(46, stat("evicted"));
+
+        for (int i = 0; i < 3; i++) reputation.recordFailure("10.0.0.1");
+        assertTrue(reputation.isBlocked("10.0.0.1"));
+    }
+
+    @Test
+    void blockedIpsAreNeverEvicted() {
+        configure(2);
+        for (int i = 0; i < 3; i++) reputation.recordFailure("10.0.0.1");
+        for (int i = 0; i < 3; i++) reputation.recordFailure("10.0.0.2");
+
+        // No room: counted, not stored
+        assertFalse(reputation.recordFailure("10.0.0.3"));
+        assertEquals(1, stat("untrackedFailures"));
+        assertTrue(reputation.isBlocked("10.0.0.1"));
+        assertTrue(reputation.isBlocked("10.0.0.2"));
+
+        Map<String, Object> snapshot = reputation.snapshot(10);
+        assertEquals(2, snapshot.get("blocked"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.zedcarhire.zedcarhiretracker.web;
+
+import com.zedcarhire.zedcarhiretracker.model.TrackPoint;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactTrackTest {
+
+    private static final String IMEI = "354000000000001";
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 10, 0);
+
+    private static TrackPoint point(double lat, double lng, double speed, Integer course, LocalDateTime t) {
+        return new TrackPoint(IMEI, lat, lng, speed, course, 1, null, null, t);
+    }
+
+    // Reference decoder for the Google polyline format
+    private static List<double[]> decode(String polyline) {
+        List<double[]> out = new ArrayList<>();
+        int i = 0;
+        long lat = 0, lng = 0;
+        while (i < polyline.length()) {
+            long[] coord = new long[2];
+            for (int k = 0; k < 2; k++) {
+                long result = 0;
+                int shift = 0;
+                int b;
+                do {
+                    b = polyline.charAt(i++) - 63;
+                    result |= (long) (b & 0x1F) << shift;
+                    shift += 5;
+                } while (b >= 0x20);
+                coord[k] = (result & 1) != 0 ? ~(result >> 1) : result >> 1;
+            }
+            lat += coord[0];
+            lng += coord[1];
+            out.add(new double[]{lat / 1e5, lng / 1e5});
+        }
+        return out;
+    }
+
+    @Test
+    void polylineMatchesTheGoogleReferenceEncoding() {
+        CompactTrack track = CompactTrack.of(IMEI, List.of(
+                point(38.5, -120.2, 0, 0, T0),
+                point(40.7, -120.95, 0, 0, T0.plusSeconds(1)),
+                point(43.252, -126.453, 0, 0, T0.plusSeconds(2))));
+
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", track.polyline());
+    }
+
+    @Test
+    void polylineRoundTripsLusakaFixes() {
+        double[][] fixes = {{-15.41667, 28.28333}, {-15.41702, 28.28401}, {-15.40011, 28.31002}, {-15.40011, 28.31002}};
+        List<TrackPoint> points = new ArrayList<>();
+        for (int i = 0; i < fixes.length; i++) points.add(point(fixes[i][0], fixes[i][1], 0, 0, T0.plusSeconds(i)));
+
+        List<double[]> decoded = decode(CompactTrack.of(IMEI, points).polyline());
+
+        assertEquals(fixes.length, decoded.size());
+        for (int i = 0; i < fixes.length; i++) assertArrayEquals(fixes[i], decoded.get(i), 1e-9);
+    }
+
+    @Test
+    void timeSpeedAndCourseAreDeltasInTimeOrder() {
+        CompactTrack track = CompactTrack.of(IMEI, List.of(
+                point(-15.4, 28.3, 40.4, 90, T0.plusSeconds(10)),
+                point(-15.4, 28.3, 0, 80, T0),
+                point(-15.4, 28.3, 35.6, null, T0.plusSeconds(25))));
+
+        assertEquals(3, track.count());
+        assertEquals(T0, track.start());
+        assertArrayEquals(new int[]{0, 10, 15}, track.time());
+        assertArrayEquals(new int[]{0, 40, -4}, track.speed());
+        // A missing course repeats the previous one
+        assertArrayEquals(new int[]{80, 10, 0}, track.course());
+    }
+
+    @Test
+    void emptyTrack() {
+        CompactTrack track = CompactTrack.of(IMEI, List.of());
+
+        assertEquals(0, track.count());
+        assertNull(track.start());
+        assertEquals("", track.polyline());
+    }
+
+    @Test
+    void groupKeepsFirstAppearanceOrder() {
+        List<CompactTrack> tracks = CompactTrack.group(List.of(
+                new TrackPoint("b", -15.4, 28.3, 0, 0, 1, null, null, T0),
+                new TrackPoint("a", -15.4, 28.3, 0, 0, 1, null, null, T0),
+                new TrackPoint("b", -15.5, 28.3, 0, 0, 1, null, null, T0.plusSeconds(5))));
+
+        assertEquals(2, tracks.size());
+        assertEquals("b", tracks.get(0).imei());
+        assertEquals(2, tracks.get(0).count());
+        assertEquals("a", tracks.get(1).imei());
+    }
+
+    @Test
+    void requestedByFormatOrAcceptHeader() {
+        assertTrue(CompactTrack.isRequested("compact", null));
+        assertTrue(CompactTrack.isRequested(null, "application/json, " + CompactTrack.MEDIA_TYPE));
+        assertFalse(CompactTrack.isRequested("json", CompactTrack.MEDIA_TYPE));
+        assertFalse(CompactTrack.isRequested(null, "application/json"));
+    }
+}
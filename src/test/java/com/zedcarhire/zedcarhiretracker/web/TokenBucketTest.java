@@ -0,0 +1,76 @@
+package com.zedcarhire.zedcarhiretracker.web;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TokenBucketTest {
+
+    private static final long MS = 1_000_000L;
+
+    private long now = 5_000 * MS;
+
+    // 10 per second = one token every 100 ms
+    private TokenBucket bucket(int burst) {
+        TokenBucket b = new TokenBucket(10, burst);
+        b.clock = () -> now;
+        return b;
+    }
+
+    @Test
+    void fullBucketAllowsOneBurst() {
+        TokenBucket b = bucket(5);
+
+        for (int i = 0; i < 5; i++) assertEquals(0, b.tryAcquire());
+        assertEquals(100 * MS, b.tryAcquire());
+    }
+
+    @Test
+    void refusedRequestsDoNotTakeTokens() {
+        TokenBucket b = bucket(1);
+        assertEquals(0, b.tryAcquire());
+
+        assertEquals(100 * MS, b.tryAcquire());
+        assertEquals(100 * MS, b.tryAcquire());
+        now += 100 * MS;
+        assertEquals(0, b.tryAcquire());
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        TokenBucket b = bucket(3);
+        for (int i = 0; i < 3; i++) b.tryAcquire();
+
+        now += 40 * MS;
+        assertEquals(60 * MS, b.tryAcquire());
+        now += 60 * MS;
+        assertEquals(0, b.tryAcquire());
+        assertEquals(100 * MS, b.tryAcquire());
+    }
+
+    @Test
+    void idleTimeRefillsNoMoreThanTheBurst() {
+        TokenBucket b = bucket(3);
+        for (int i = 0; i < 3; i++) b.tryAcquire();
+
+        now += 60_000 * MS;
+        for (int i = 0; i < 3; i++) assertEquals(0, b.tryAcquire());
+        assertEquals(100 * MS, b.tryAcquire());
+    }
+
+    @Test
+    void steadyRateAtTheLimitIsNeverRefused() {
+        TokenBucket b = bucket(1);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, b.tryAcquire());
+            now += 100 * MS;
+        }
+    }
+
+    @Test
+    void rateMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 5));
+    }
+}
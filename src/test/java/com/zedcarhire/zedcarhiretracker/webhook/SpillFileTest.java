@@ -0,0 +1,95 @@
+package com.zedcarhire.zedcarhiretracker.webhook;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpillFileTest {
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dir = Files.createTempDirectory("spill");
+        dir.toFile().deleteOnExit();
+    }
+
+    private static byte[] batch(int n) {
+        // 9 bytes + '\n' per line
+        return String.format("batch-%03d", n).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] b) {
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void replaysOldestFirstAndResumesAfterRestart() throws Exception {
+        SpillFile spill = new SpillFile(dir, "hook", 1000);
+        for (int i = 0; i < 3; i++) assertTrue(spill.append(batch(i)));
+
+        spill.advance(spill.peek());
+        SpillFile reopened = new SpillFile(dir, "hook", 1000);
+        assertEquals("batch-001", text(reopened.peek()));
+        assertEquals(20, reopened.pending());
+
+        reopened.advance(reopened.peek());
+        reopened.advance(reopened.peek());
+        assertNull(reopened.peek());
+        assertFalse(Files.exists(dir.resolve("hook.ndjson")));
+    }
+
+    @Test
+    void deliveredPrefixDoesNotCountAgainstTheLimit() throws Exception {
+        SpillFile spill = new SpillFile(dir, "hook", 40);
+        for (int i = 0; i < 4; i++) assertTrue(spill.append(batch(i)));
+        assertFalse(spill.append(batch(4)));
+
+        spill.advance(spill.peek());
+        assertTrue(spill.append(batch(4)));
+        assertTrue(spill.size() <= 40);
+
+        for (int i = 1; i <= 4; i++) {
+            byte[] b = spill.peek();
+            assertEquals("batch-00" + i, text(b));
+            spill.advance(b);
+        }
+        assertNull(spill.peek());
+    }
+
+    @Test
+    void compactsOnceAQuarterHasBeenDelivered() throws Exception {
+        SpillFile spill = new SpillFile(dir, "hook", 80);
+        for (int i = 0; i < 6; i++) spill.append(batch(i));
+
+        spill.advance(spill.peek());
+        assertEquals(60, spill.size());
+        spill.advance(spill.peek());
+        assertEquals(40, spill.size());
+        assertEquals("0", Files.readString(dir.resolve("hook.offset")));
+
+        SpillFile reopened = new SpillFile(dir, "hook", 80);
+        assertEquals("batch-002", text(reopened.peek()));
+        assertEquals(40, reopened.pending());
+    }
+
+    @Test
+    void dropsALineCutOffByACrash() throws Exception {
+        SpillFile spill = new SpillFile(dir, "hook", 1000);
+        spill.append(batch(0));
+        Files.write(dir.resolve("hook.ndjson"), "batch-0".getBytes(StandardCharsets.UTF_8),
+                java.nio.file.StandardOpenOption.APPEND);
+
+        SpillFile reopened = new SpillFile(dir, "hook", 1000);
+        assertEquals(10, reopened.pending());
+        assertEquals("batch-000", text(reopened.peek()));
+    }
+}
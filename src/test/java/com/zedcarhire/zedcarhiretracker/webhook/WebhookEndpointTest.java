@@ -0,0 +1,46 @@
+package com.zedcarhire.zedcarhiretracker.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class WebhookEndpointTest {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void batchIdIsReadFromThePayload() {
+        byte[] payload = bytes("{\"id\":\"3f2b9c0e5a7d4e1f8b6c2a9d0e4f7a1b\",\"endpoint\":\"booking\",\"fixes\":[]}");
+
+        assertEquals("3f2b9c0e5a7d4e1f8b6c2a9d0e4f7a1b", WebhookEndpoint.batchId(payload));
+    }
+
+    @Test
+    void payloadWithoutLeadingIdHasNone() {
+        // Spilled before batches carried an id
+        assertNull(WebhookEndpoint.batchId(bytes("{\"endpoint\":\"booking\",\"fixes\":[]}")));
+        assertNull(WebhookEndpoint.batchId(bytes("{\"endpoint\":\"booking\",\"id\":\"x\"}")));
+        assertNull(WebhookEndpoint.batchId(bytes("{\"id\":\"unterminated")));
+        assertNull(WebhookEndpoint.batchId(bytes("{")));
+    }
+
+    @Test
+    void batchIdSurvivesSpillAndReplay() throws Exception {
+        Path dir = Files.createTempDirectory("spill");
+        dir.toFile().deleteOnExit();
+        byte[] payload = bytes("{\"id\":\"a1\",\"endpoint\":\"booking\",\"alerts\":[]}");
+
+        SpillFile spill = new SpillFile(dir, "booking", 1024);
+        spill.append(payload);
+        SpillFile reopened = new SpillFile(dir, "booking", 1024);
+
+        assertEquals("a1", WebhookEndpoint.batchId(reopened.peek()));
+    }
+}